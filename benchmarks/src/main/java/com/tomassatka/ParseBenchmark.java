@@ -0,0 +1,56 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simpleframework.xml.core.Persister;
+
+/**
+ * Reading a JaCoCo report into memory, what {@code loadJacocoData} does for each parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public long lines;
+
+    @Param({"stax", "mapped", "persister"})
+    public String parser;
+
+    private File report;
+
+    @Setup
+    public void setUp() throws IOException {
+        report = SyntheticReport.cached(lines);
+    }
+
+    @Benchmark
+    public Jacoco.Report parse() throws Exception {
+        if ("stax".equals(parser)) {
+            return JacocoReader.read(report);
+        }
+        if ("mapped".equals(parser)) {
+            JacocoReader.Collector collector = new JacocoReader.Collector();
+            JacocoScanner.read(report, collector);
+            return collector.getReport();
+        }
+        return new Persister().read(Jacoco.Report.class, report);
+    }
+}
@@ -0,0 +1,212 @@
+package com.tomassatka;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic JaCoCo XML report of a given shape, the same shape and seed always give the same bytes.
+ * <p>
+ * Every class has its own source file, counters of methods, classes, source files, packages and the report are
+ * consistent with the lines just like in a report written by JaCoCo.
+ */
+public class SyntheticReport {
+
+    private static final String[] COUNTER_TYPES = {"INSTRUCTION", "BRANCH", "LINE", "COMPLEXITY", "METHOD", "CLASS"};
+    private static final int INSTRUCTION = 0;
+    private static final int BRANCH = 1;
+    private static final int LINE = 2;
+    private static final int COMPLEXITY = 3;
+    private static final int METHOD = 4;
+    private static final int CLASS = 5;
+
+    private final int packages;
+    private final int classesPerPackage;
+    private final int methodsPerClass;
+    private final int linesPerMethod;
+    private final double branchDensity;
+    private final long seed;
+
+    public SyntheticReport(int packages, int classesPerPackage, int methodsPerClass, int linesPerMethod,
+            double branchDensity, long seed) {
+        this.packages = packages;
+        this.classesPerPackage = classesPerPackage;
+        this.methodsPerClass = methodsPerClass;
+        this.linesPerMethod = linesPerMethod;
+        this.branchDensity = branchDensity;
+        this.seed = seed;
+    }
+
+    /**
+     * Report of about {@code lines} lines, in classes of ten methods of ten lines and packages of up to fifty
+     * classes, every fifth line has branches.
+     */
+    public static SyntheticReport ofLines(long lines) {
+        int classes = (int) Math.max(1, (lines + 99) / 100);
+        int classesPerPackage = Math.min(50, classes);
+        int packages = (classes + classesPerPackage - 1) / classesPerPackage;
+        return new SyntheticReport(packages, classesPerPackage, 10, 10, 0.2, 42);
+    }
+
+    /**
+     * The report of {@link #ofLines(long)}, generated into the temporary directory on first use.
+     */
+    public static File cached(long lines) throws IOException {
+        SyntheticReport report = ofLines(lines);
+        File file = new File(System.getProperty("java.io.tmpdir"), "jacoco-synthetic-" + report.lines() + ".xml");
+        if (!file.isFile()) {
+            File partial = new File(file.getPath() + ".partial");
+            report.write(partial);
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        return file;
+    }
+
+    public long lines() {
+        return (long) packages * classesPerPackage * methodsPerClass * linesPerMethod;
+    }
+
+    public void write(File file) throws IOException {
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+            write(out);
+        }
+    }
+
+    public void write(Writer out) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><!DOCTYPE report PUBLIC"
+                + " \"-//JACOCO//DTD Report 1.1//EN\" \"report.dtd\"><report name=\"synthetic\">");
+        out.write("<sessioninfo id=\"synthetic-1\" start=\"1700000000000\" dump=\"1700000060000\"/>");
+
+        int linesPerClass = methodsPerClass * linesPerMethod;
+        int[] mi = new int[classesPerPackage * linesPerClass];
+        int[] ci = new int[mi.length];
+        int[] mb = new int[mi.length];
+        int[] cb = new int[mi.length];
+        long[][] classCounters = new long[classesPerPackage][];
+        long[] reportCounters = new long[2 * COUNTER_TYPES.length];
+
+        for (int p = 0; p < packages; p++) {
+            String packageName = "com/example/p" + p;
+            out.write("<package name=\"" + packageName + "\">");
+            long[] packageCounters = new long[reportCounters.length];
+            for (int c = 0; c < classesPerPackage; c++) {
+                out.write("<class name=\"" + packageName + "/C" + c + "\" sourcefilename=\"C" + c + ".java\">");
+                long[] counters = new long[reportCounters.length];
+                for (int m = 0; m < methodsPerClass; m++) {
+                    long[] methodCounters = new long[reportCounters.length];
+                    int first = c * linesPerClass + m * linesPerMethod;
+                    for (int l = first; l < first + linesPerMethod; l++) {
+                        generateLine(random, l, mi, ci, mb, cb);
+                        add(methodCounters, INSTRUCTION, mi[l], ci[l]);
+                        add(methodCounters, BRANCH, mb[l], cb[l]);
+                        add(methodCounters, LINE, ci[l] == 0 ? 1 : 0, ci[l] > 0 ? 1 : 0);
+                    }
+                    boolean covered = methodCounters[2 * LINE + 1] > 0;
+                    long decisions = (methodCounters[2 * BRANCH] + methodCounters[2 * BRANCH + 1]) / 2;
+                    long coveredDecisions = covered ? methodCounters[2 * BRANCH + 1] / 2 : 0;
+                    add(methodCounters, COMPLEXITY, 1 + decisions - (covered ? 1 + coveredDecisions : 0),
+                            covered ? 1 + coveredDecisions : 0);
+                    add(methodCounters, METHOD, covered ? 0 : 1, covered ? 1 : 0);
+
+                    out.write("<method name=\"m" + m + "\" desc=\"(I)V\" line=\"" + lineNumber(m, 0) + "\">");
+                    writeCounters(out, methodCounters);
+                    out.write("</method>");
+                    add(counters, methodCounters);
+                }
+                boolean covered = counters[2 * METHOD + 1] > 0;
+                add(counters, CLASS, covered ? 0 : 1, covered ? 1 : 0);
+                writeCounters(out, counters);
+                out.write("</class>");
+                classCounters[c] = counters;
+                add(packageCounters, counters);
+            }
+            for (int c = 0; c < classesPerPackage; c++) {
+                out.write("<sourcefile name=\"C" + c + ".java\">");
+                for (int m = 0; m < methodsPerClass; m++) {
+                    for (int l = 0; l < linesPerMethod; l++) {
+                        int i = c * linesPerClass + m * linesPerMethod + l;
+                        out.write("<line nr=\"" + lineNumber(m, l) + "\" mi=\"" + mi[i] + "\" ci=\"" + ci[i]
+                                + "\" mb=\"" + mb[i] + "\" cb=\"" + cb[i] + "\"/>");
+                    }
+                }
+                writeCounters(out, classCounters[c]);
+                out.write("</sourcefile>");
+            }
+            writeCounters(out, packageCounters);
+            out.write("</package>");
+            add(reportCounters, packageCounters);
+        }
+        writeCounters(out, reportCounters);
+        out.write("</report>");
+    }
+
+    private void generateLine(SplittableRandom random, int l, int[] mi, int[] ci, int[] mb, int[] cb) {
+        int instructions = 1 + random.nextInt(6);
+        double state = random.nextDouble();
+        ci[l] = state < 0.6 ? instructions : state < 0.7 ? random.nextInt(instructions) : 0;
+        mi[l] = instructions - ci[l];
+        if (random.nextDouble() < branchDensity) {
+            int branches = random.nextBoolean() ? 2 : 4;
+            cb[l] = ci[l] > 0 ? random.nextInt(branches + 1) : 0;
+            mb[l] = branches - cb[l];
+        } else {
+            cb[l] = 0;
+            mb[l] = 0;
+        }
+    }
+
+    /**
+     * Methods are two lines apart, for the signature and the closing brace.
+     */
+    private int lineNumber(int method, int line) {
+        return 2 + method * (linesPerMethod + 2) + line;
+    }
+
+    private static void add(long[] counters, int type, long missed, long covered) {
+        counters[2 * type] += missed;
+        counters[2 * type + 1] += covered;
+    }
+
+    private static void add(long[] counters, long[] other) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other[i];
+        }
+    }
+
+    private static void writeCounters(Writer out, long[] counters) throws IOException {
+        for (int type = 0; type < COUNTER_TYPES.length; type++) {
+            long missed = counters[2 * type];
+            long covered = counters[2 * type + 1];
+            if (missed + covered > 0) {
+                out.write("<counter type=\"" + COUNTER_TYPES[type] + "\" missed=\"" + missed + "\" covered=\""
+                        + covered + "\"/>");
+            }
+        }
+    }
+
+    /**
+     * Usage: {@code SyntheticReport <output file> <packages> <classes per package> <methods per class>
+     * <lines per method> [branch density] [seed]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: SyntheticReport <output file> <packages> <classes per package>"
+                    + " <methods per class> <lines per method> [branch density] [seed]");
+            System.exit(1);
+        }
+        SyntheticReport report = new SyntheticReport(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                args.length > 5 ? Double.parseDouble(args[5]) : 0.2, args.length > 6 ? Long.parseLong(args[6]) : 42);
+        report.write(new File(args[0]));
+        System.out.println("Wrote " + report.lines() + " lines to " + args[0]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tomassatka;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transforming the JaCoCo data of a report already in memory into the Cobertura object tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransformBenchmark {
+
+    static final List<String> SOURCES = List.of("src/main/java");
+
+    @Param({"1000", "100000", "10000000"})
+    public long lines;
+
+    private Jacoco.Report report;
+    private Jacoco.PackageElement firstPackage;
+
+    @Setup
+    public void setUp() throws IOException, XMLStreamException {
+        report = JacocoReader.read(SyntheticReport.cached(lines));
+        firstPackage = report.getPackages().get(0);
+    }
+
+    @Benchmark
+    public Cobertura.Coverage coverage() {
+        return new Cobertura.Coverage(report, SOURCES);
+    }
+
+    /**
+     * The lines of every method of one package, looked up method by method.
+     */
+    @Benchmark
+    public void linesForMethod(Blackhole blackhole) {
+        for (Jacoco.ClassElement classElement : firstPackage.getClasses()) {
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                blackhole.consume(Cobertura.linesForMethod(methodElement, firstPackage,
+                        classElement.getSourcefilename()));
+            }
+        }
+    }
+}
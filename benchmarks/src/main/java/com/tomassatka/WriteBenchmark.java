@@ -0,0 +1,70 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simpleframework.xml.core.Persister;
+import org.simpleframework.xml.stream.Format;
+
+/**
+ * Writing the Cobertura report, {@code persister} serializes the Cobertura object tree like
+ * {@code writeCoberturaData}, {@code stream} writes directly from the JaCoCo data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public long lines;
+
+    @Param({"stream", "persister"})
+    public String writer;
+
+    private Jacoco.Report report;
+    private Cobertura.Coverage coverage;
+    private File outputFile;
+
+    @Setup
+    public void setUp() throws IOException, XMLStreamException {
+        report = JacocoReader.read(SyntheticReport.cached(lines));
+        if ("persister".equals(writer)) {
+            coverage = new Cobertura.Coverage(report, TransformBenchmark.SOURCES);
+        }
+        outputFile = File.createTempFile("cobertura-", ".xml");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile.toPath());
+    }
+
+    @Benchmark
+    public File write() throws Exception {
+        if ("persister".equals(writer)) {
+            new Persister(new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>")).write(coverage, outputFile);
+        } else {
+            CoberturaWriter.write(outputFile, report, TransformBenchmark.SOURCES, null);
+        }
+        return outputFile;
+    }
+}
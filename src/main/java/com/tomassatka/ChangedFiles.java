@@ -0,0 +1,113 @@
+package com.tomassatka;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The source files changed by a merge request, read from a list of paths such as the output of
+ * {@code git diff --name-only}.
+ * <p>
+ * The paths are relative to the repository, the names in a JaCoCo report are relative to a source directory, so a
+ * source file {@code com/example/Foo.java} matches a changed path ending with it, e.g.
+ * {@code module/src/main/java/com/example/Foo.java}. Every path is indexed with all of its suffixes which start at a
+ * directory boundary, a source file or package is then looked up with a single hash lookup, no matter how many
+ * paths changed.
+ */
+class ChangedFiles {
+
+    private final File file;
+    private final int size;
+    private final Set<String> files = new HashSet<>();
+    private final Set<String> directories = new HashSet<>();
+
+    private ChangedFiles(File file, int size) {
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * Reads one path per line, blank lines and lines starting with {@code #} are ignored.
+     */
+    public static ChangedFiles load(File file) throws JacocoToCoberturaException, IOException {
+        if (!file.isFile()) {
+            throw new JacocoToCoberturaException("Changed files list `" + file + "` does not exist");
+        }
+        Set<String> paths = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String path = normalize(line);
+                if (!path.isEmpty() && !path.startsWith("#")) {
+                    paths.add(path);
+                }
+            }
+        }
+        ChangedFiles changedFiles = new ChangedFiles(file, paths.size());
+        paths.forEach(changedFiles::index);
+        return changedFiles;
+    }
+
+    private void index(String path) {
+        addSuffixes(path, files);
+        // the default package is the empty directory
+        directories.add("");
+        int slash = path.lastIndexOf('/');
+        if (slash > 0) {
+            addSuffixes(path.substring(0, slash), directories);
+        }
+    }
+
+    private static void addSuffixes(String path, Set<String> suffixes) {
+        int start = 0;
+        do {
+            suffixes.add(path.substring(start));
+            start = path.indexOf('/', start) + 1;
+        } while (start > 0);
+    }
+
+    private static String normalize(String line) {
+        String path = line.trim().replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        return path;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of changed paths
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether a changed path may lie in the package {@code packageName}
+     */
+    public boolean containsPackage(String packageName) {
+        return directories.contains(packageName != null ? packageName : "");
+    }
+
+    /**
+     * @return whether the source file {@code name} of the package {@code packageName} changed
+     */
+    public boolean contains(String packageName, String name) {
+        if (name == null) {
+            return false;
+        }
+        return files.contains(packageName == null || packageName.isEmpty() ? name : packageName + "/" + name);
+    }
+
+    @Override
+    public String toString() {
+        return file + " (" + size + " paths)";
+    }
+}
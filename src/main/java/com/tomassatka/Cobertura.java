@@ -1,9 +1,12 @@
 package com.tomassatka;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -14,36 +17,132 @@ import org.simpleframework.xml.Root;
 import org.simpleframework.xml.Text;
 
 public class Cobertura {
-    public static List<Jacoco.Line> linesForMethod(Jacoco.MethodElement jMethod, Jacoco.PackageElement jPack,
+    public static Jacoco.LineTable linesForMethod(Jacoco.MethodElement jMethod, Jacoco.PackageElement jPack,
             String jSource) {
-        if (jSource == null) {
-            return Collections.emptyList();
-        } else {
+        return new LineIndex(jPack).linesForMethod(jMethod, jSource);
+    }
+
+    /**
+     * Lines and method start lines of every source file of a package, built once per package so that the lines of
+     * a method are found by binary search instead of scanning the whole package for every method.
+     */
+    static class LineIndex {
+        private static final Jacoco.LineTable EMPTY_LINES = new Jacoco.LineTable(0).slice(0, 0);
+
+        private final Map<String, SourceLines> sources = new HashMap<>();
+
+        public LineIndex(Jacoco.PackageElement jPack) {
+            Map<String, Jacoco.LineTable> lines = new HashMap<>();
+            for (Jacoco.SourceFile sourceFile : jPack.getSourceFiles()) {
+                if (sourceFile.getName() != null) {
+                    lines.merge(sourceFile.getName(), sourceFile.getLineTable(), LineIndex::concat);
+                }
+            }
+
+            // overloads share their name and only the last one counts, as it always did
+            Map<String, Map<String, Integer>> methods = new HashMap<>();
+            for (Jacoco.ClassElement classElement : jPack.getClasses()) {
+                if (classElement.getSourcefilename() == null) {
+                    continue;
+                }
+                Map<String, Integer> methodLines = methods.computeIfAbsent(classElement.getSourcefilename(),
+                        name -> new HashMap<>());
+                for (Jacoco.MethodElement method : classElement.getMethods()) {
+                    if (method.getName() != null && method.getLine() != null) {
+                        methodLines.put(method.getName(), method.getLine());
+                    }
+                }
+            }
+
+            lines.forEach((name, sourceLines) -> sources.put(name, new SourceLines(sourceLines,
+                    methods.getOrDefault(name, Map.of()).values())));
+        }
+
+        public Jacoco.LineTable linesForMethod(Jacoco.MethodElement jMethod, String jSource) {
+            SourceLines sourceLines = jSource != null ? sources.get(jSource) : null;
+            if (sourceLines == null) {
+                return EMPTY_LINES;
+            }
             int currentMethodLine = (jMethod.getLine() != null) ? jMethod.getLine() : 0;
-            List<Jacoco.Line> sourceLines = jPack.getSourceFiles().stream()
-                    .filter(sf -> jSource.equals(sf.getName()))
-                    .flatMap(sf -> sf.getLines().stream())
-                    .filter(line -> (line.getNr() != 0 && line.getNr() >= currentMethodLine))
-                    .collect(Collectors.toList());
+            return sourceLines.linesBetween(currentMethodLine, sourceLines.nextMethodLine(currentMethodLine));
+        }
 
-            Map<String, Integer> packMethods = jPack.getClasses().stream()
-                    .filter(ce -> jSource.equals(ce.getSourcefilename()))
-                    .flatMap(ce -> ce.getMethods().stream())
-                    .filter(method -> method.getName() != null && method.getLine() != null)
-                    .collect(Collectors.toMap(
-                            method -> (String) method.getName(),
-                            method -> (Integer) method.getLine(),
-                            (existingValue, newValue) -> newValue));
-
-            int nextMethodLine = packMethods.values().stream()
-                    .filter(lineNr -> lineNr > currentMethodLine)
-                    .mapToInt(Integer::intValue)
-                    .min()
-                    .orElse(Integer.MAX_VALUE);
-
-            return sourceLines.stream()
-                    .filter(line -> (line.getNr() != 0 && line.getNr() < nextMethodLine))
-                    .collect(Collectors.toList());
+        private static Jacoco.LineTable concat(Jacoco.LineTable first, Jacoco.LineTable second) {
+            Jacoco.LineTable lines = new Jacoco.LineTable(first.size() + second.size());
+            for (int i = 0; i < first.size(); i++) {
+                lines.add(first, i);
+            }
+            for (int i = 0; i < second.size(); i++) {
+                lines.add(second, i);
+            }
+            return lines;
+        }
+    }
+
+    private static class SourceLines {
+        private final Jacoco.LineTable lines;
+        private final boolean sorted;
+        private final int[] methodLines;
+
+        SourceLines(Jacoco.LineTable lines, Collection<Integer> methodLines) {
+            this.lines = lines;
+            boolean ascending = true;
+            for (int i = 1; i < lines.size() && ascending; i++) {
+                ascending = lines.getNr(i - 1) <= lines.getNr(i);
+            }
+            this.sorted = ascending;
+            this.methodLines = methodLines.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        }
+
+        int nextMethodLine(int line) {
+            int index = upperBound(methodLines, line);
+            return index < methodLines.length ? methodLines[index] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Lines from {@code from} inclusive to {@code to} exclusive in document order, line {@code 0} excluded.
+         */
+        Jacoco.LineTable linesBetween(int from, int to) {
+            if (sorted && from > 0) {
+                int start = lowerBound(lines, from);
+                return lines.slice(start, Math.max(start, lowerBound(lines, to)));
+            }
+            Jacoco.LineTable result = new Jacoco.LineTable();
+            for (int i = 0; i < lines.size(); i++) {
+                int nr = lines.getNr(i);
+                if (nr != 0 && nr >= from && nr < to) {
+                    result.add(lines, i);
+                }
+            }
+            return result;
+        }
+
+        private static int lowerBound(Jacoco.LineTable lines, int key) {
+            int low = 0;
+            int high = lines.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lines.getNr(mid) < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int upperBound(int[] values, int key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
         }
     }
 
@@ -69,12 +168,16 @@ public class Cobertura {
         protected double complexity = 0.0;
 
         public ClassElement(Jacoco.ClassElement c, Jacoco.PackageElement jPack) {
+            this(c, jPack, new LineIndex(jPack), new StringPool());
+        }
+
+        ClassElement(Jacoco.ClassElement c, Jacoco.PackageElement jPack, LineIndex index, StringPool strings) {
             this.name = c.getName() != null ? c.getName() : "";
             String packageName = (jPack.getName() != null) ? jPack.getName() : "";
             String sourceFilename = (c.getSourcefilename() != null) ? c.getSourcefilename() : "";
-            this.filename = packageName + "/" + sourceFilename;
+            this.filename = strings.filename(packageName, sourceFilename);
             this.methods = c.getMethods().stream()
-                    .map(it -> new Method(it, c.getSourcefilename(), jPack))
+                    .map(it -> new Method(it, c.getSourcefilename(), index, strings))
                     .collect(Collectors.toList());
 
             this.lineRate = c.lineRate();
@@ -134,20 +237,51 @@ public class Cobertura {
         protected double complexity = 0.0;
 
         public Coverage(Jacoco.Report j, Collection<String> sources) {
+            this(j, sources, new StringPool());
+        }
+
+        /**
+         * @param strings shares the repeated strings of all packages
+         */
+        public Coverage(Jacoco.Report j, Collection<String> sources, StringPool strings) {
+            this(j, sources, Stream.concat(
+                    j.getPackages().stream(),
+                    j.getGroups().stream()
+                            .flatMap(group -> group.getPackages().stream()))
+                    .map(p -> new Package(p, strings))
+                    .collect(Collectors.toList()));
+        }
+
+        public Coverage(Jacoco.Report j, Collection<String> sources, ForkJoinPool pool) {
+            this(j, sources, pool, new StringPool());
+        }
+
+        /**
+         * Transforms the packages concurrently on {@code pool}, they keep their document order.
+         */
+        public Coverage(Jacoco.Report j, Collection<String> sources, ForkJoinPool pool, StringPool strings) {
+            this(j, sources, pool.invoke(ForkJoinTask.adapt(() -> Stream.concat(
+                    j.getPackages().stream(),
+                    j.getGroups().stream()
+                            .flatMap(group -> group.getPackages().stream()))
+                    .collect(Collectors.toList())
+                    .parallelStream()
+                    .map(p -> new Package(p, strings))
+                    .collect(Collectors.toList()))));
+        }
+
+        /**
+         * Builds the coverage from packages which were already transformed, {@code j} only contributes its
+         * session infos and counters.
+         */
+        public Coverage(Jacoco.Report j, Collection<String> sources, List<Package> packages) {
             this.timestamp = j.timestamp();
             this.sources = (sources.isEmpty() ? List.of(".") : sources).stream().map(Source::new)
                     .collect(Collectors.toList());
             this.lineRate = j.lineRate();
             this.branchRate = j.branchRate();
             this.complexity = j.complexity();
-
-            List<Jacoco.PackageElement> allPackages = Stream.concat(
-                    j.getPackages().stream(),
-                    j.getGroups().stream()
-                            .flatMap(group -> group.getPackages().stream()))
-                    .collect(Collectors.toList());
-
-            this.packages = allPackages.stream().map(Package::new).collect(Collectors.toList());
+            this.packages = packages;
         }
     }
 
@@ -168,16 +302,21 @@ public class Cobertura {
         @ElementList(name = "conditions", required = false)
         private List<Condition> conditions;
 
-        public Line(Jacoco.Line l) {
-            this.number = l.getNr();
-            this.hits = l.getCi() > 0 ? 1 : 0;
+        public Line(Jacoco.LineTable lines, int i) {
+            this(lines, i, new StringPool());
+        }
+
+        Line(Jacoco.LineTable lines, int i, StringPool strings) {
+            this.number = lines.getNr(i);
+            this.hits = lines.getCi(i) > 0 ? 1 : 0;
 
-            if (l.getMb() + l.getCb() > 0) {
+            int mb = lines.getMb(i);
+            int cb = lines.getCb(i);
+            if (mb + cb > 0) {
                 branch = true;
 
-                int percentage = (int) (100 * ((double) l.getCb() / (l.getCb() + l.getMb())));
-                conditionCoverage = percentage + "% (" + l.getCb() + "/" + (l.getCb() + l.getMb()) + ")";
-                conditions = List.of(new Condition(String.valueOf(percentage) + "%"));
+                conditionCoverage = strings.conditionCoverage(cb, cb + mb);
+                conditions = List.of(new Condition(strings.percentage(cb, cb + mb)));
             }
         }
     }
@@ -212,9 +351,17 @@ public class Cobertura {
         }
 
         public Method(Jacoco.MethodElement m, String jSource, Jacoco.PackageElement jPack) {
+            this(m, jSource, new LineIndex(jPack), new StringPool());
+        }
+
+        Method(Jacoco.MethodElement m, String jSource, LineIndex index, StringPool strings) {
             this.name = m.getName() != null ? m.getName() : "";
             this.signature = m.getDesc() != null ? m.getDesc() : "";
-            this.lines = linesForMethod(m, jPack, jSource).stream().map(Line::new).collect(Collectors.toList());
+            Jacoco.LineTable methodLines = index.linesForMethod(m, jSource);
+            this.lines = new ArrayList<>(methodLines.size());
+            for (int i = 0; i < methodLines.size(); i++) {
+                this.lines.add(new Line(methodLines, i, strings));
+            }
             this.lineRate = m.lineRate();
             this.branchRate = m.branchRate();
             this.complexity = m.complexity();
@@ -240,8 +387,14 @@ public class Cobertura {
         protected double complexity = 0.0;
 
         public Package(Jacoco.PackageElement p) {
+            this(p, new StringPool());
+        }
+
+        public Package(Jacoco.PackageElement p, StringPool strings) {
             this.name = p.getName() != null ? p.getName() : "";
-            this.classes = p.getClasses().stream().map(classElement -> new ClassElement(classElement, p))
+            LineIndex index = new LineIndex(p);
+            this.classes = p.getClasses().stream()
+                    .map(classElement -> new ClassElement(classElement, p, index, strings))
                     .collect(Collectors.toList());
             this.lineRate = p.lineRate();
             this.branchRate = p.branchRate();
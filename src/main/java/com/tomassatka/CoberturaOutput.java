@@ -0,0 +1,143 @@
+package com.tomassatka;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Where the Cobertura reports of a conversion are written: plain files, gzip compressed files or entries of a
+ * single zip archive. Safe to use from several threads, entries of the archive are written one at a time.
+ */
+class CoberturaOutput implements Closeable {
+
+    static final List<String> COMPRESSIONS = List.of("none", "gzip", "zip");
+
+    private final String compression;
+    private final File archiveFile;
+    private final ReentrantLock archiveLock = new ReentrantLock();
+    private ZipOutputStream archive;
+
+    /**
+     * @param outputFile the configured output file, the zip archive is named after it
+     */
+    CoberturaOutput(String compression, File outputFile) {
+        this.compression = compression;
+        String path = outputFile.getPath();
+        this.archiveFile = new File((path.endsWith(".xml") ? path.substring(0, path.length() - 4) : path) + ".zip");
+    }
+
+    /**
+     * @return the report next to {@code outputFile} named after it with {@code "-" + suffix} inserted before the
+     *         extension of its name, e.g. {@code cobertura-1.xml} or {@code cobertura-1.xml.gz}, or appended to a name
+     *         without extension
+     */
+    static File suffixedFile(File outputFile, String suffix) {
+        String name = outputFile.getName();
+        int extension = name.lastIndexOf('.');
+        if (name.endsWith(".gz") && extension > 0 && name.lastIndexOf('.', extension - 1) > 0) {
+            extension = name.lastIndexOf('.', extension - 1);
+        }
+        String suffixed = extension > 0 ? name.substring(0, extension) + "-" + suffix + name.substring(extension)
+                : name + "-" + suffix;
+        return new File(outputFile.getAbsoluteFile().getParentFile(), suffixed);
+    }
+
+    public boolean isArchive() {
+        return "zip".equals(compression);
+    }
+
+    public File getArchiveFile() {
+        return archiveFile;
+    }
+
+    /**
+     * @return the file a report meant for {@code outputFile} actually ends up in
+     */
+    public File file(File outputFile) {
+        switch (compression) {
+        case "gzip":
+            return outputFile.getName().endsWith(".gz") ? outputFile : new File(outputFile.getPath() + ".gz");
+        case "zip":
+            return archiveFile;
+        default:
+            return outputFile;
+        }
+    }
+
+    /**
+     * Opens the report meant for {@code outputFile}, an archive entry blocks other entries until it is closed.
+     */
+    public OutputStream open(File outputFile) throws IOException {
+        switch (compression) {
+        case "gzip":
+            return new GZIPOutputStream(new FileOutputStream(file(outputFile)), 1 << 16);
+        case "zip":
+            return openEntry(outputFile.getName());
+        default:
+            return Channels.newOutputStream(FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        }
+    }
+
+    private OutputStream openEntry(String name) throws IOException {
+        archiveLock.lock();
+        try {
+            if (archive == null) {
+                archive = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile), 1 << 16));
+            }
+            archive.putNextEntry(new ZipEntry(name));
+        } catch (IOException | RuntimeException e) {
+            archiveLock.unlock();
+            throw e;
+        }
+        return new FilterOutputStream(archive) {
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    archive.closeEntry();
+                } finally {
+                    archiveLock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Completes the zip archive, when there is one.
+     */
+    @Override
+    public void close() throws IOException {
+        archiveLock.lock();
+        try {
+            if (archive != null) {
+                archive.close();
+                archive = null;
+            }
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+}
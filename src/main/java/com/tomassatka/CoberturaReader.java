@@ -0,0 +1,131 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull based (StAX) reader of the line coverage of Cobertura XML reports, e.g. of a previous run of this plugin or of
+ * another tool, handed to a {@link CoverageDelta.Handler} package by package.
+ * <p>
+ * Only the lines are read, wherever they appear within a class: under its methods, as written by this plugin, or
+ * directly under the class. A line listed several times keeps its highest hits.
+ */
+class CoberturaReader {
+
+    public static void read(File inputFile, CoverageDelta.Handler handler) throws IOException, XMLStreamException {
+        try (InputStream in = JacocoReader.open(inputFile)) {
+            XMLStreamReader reader = JacocoReader.FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        if (!"coverage".equals(reader.getLocalName())) {
+                            throw new XMLStreamException("Unexpected root element `" + reader.getLocalName() + "`",
+                                    reader.getLocation());
+                        }
+                        new CoberturaReader(reader, handler).readCoverage();
+                        return;
+                    }
+                }
+                throw new XMLStreamException("Missing root element `coverage`");
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private final XMLStreamReader reader;
+    private final CoverageDelta.Handler handler;
+
+    private CoberturaReader(XMLStreamReader reader, CoverageDelta.Handler handler) {
+        this.reader = reader;
+        this.handler = handler;
+    }
+
+    private void readCoverage() throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("packages".equals(reader.getLocalName())) {
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if ("package".equals(reader.getLocalName())) {
+                        readPackage();
+                    } else {
+                        skipElement();
+                    }
+                }
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    private void readPackage() throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        CoverageDelta.PackageCoverage packageCoverage = new CoverageDelta.PackageCoverage(name != null ? name : "");
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("classes".equals(reader.getLocalName())) {
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if ("class".equals(reader.getLocalName())) {
+                        readClass(packageCoverage);
+                    } else {
+                        skipElement();
+                    }
+                }
+            } else {
+                skipElement();
+            }
+        }
+        handler.packageCoverage(packageCoverage);
+    }
+
+    private void readClass(CoverageDelta.PackageCoverage packageCoverage) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        String filename = reader.getAttributeValue(null, "filename");
+        CoverageDelta.LineHits lines = new CoverageDelta.LineHits();
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if ("line".equals(reader.getLocalName())) {
+                    lines.add(intAttribute("number"), intAttribute("hits"));
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        lines.sort();
+        int covered = lines.covered();
+        packageCoverage.addClass(name != null ? name : "", lines.size() - covered, covered);
+        if (filename != null) {
+            packageCoverage.addLines(filename, lines);
+        }
+    }
+
+    private int intAttribute(String name) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, name);
+        try {
+            // hits of long running tests may exceed an int
+            return value != null ? (int) Math.min(Long.parseLong(value.trim()), Integer.MAX_VALUE) : 0;
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid " + name + " `" + value + "`", reader.getLocation());
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,700 @@
+package com.tomassatka;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes Cobertura XML straight from the JaCoCo data, without building the {@link Cobertura.Coverage} tree.
+ * <p>
+ * The layout matches the one of the Simple XML {@code Persister} used before: three spaces of indentation and
+ * empty lists written as empty elements.
+ */
+class CoberturaWriter implements Closeable {
+
+    static final String PROLOG = "<?xml version=\"1.0\" encoding= \"UTF-8\" ?>";
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newDefaultFactory();
+
+    private static final int INDENT = 3;
+
+    private static final char[] NEWLINE = ("\n" + " ".repeat(64 * INDENT)).toCharArray();
+
+    /**
+     * Writes the whole report when it is already in memory, packages of all groups included.
+     *
+     * @param pool renders the packages concurrently when not {@code null}
+     */
+    public static void write(File outputFile, Jacoco.Report report, Collection<String> sources, ForkJoinPool pool)
+            throws IOException, XMLStreamException {
+        write(outputFile, report, sources, pool, null);
+    }
+
+    /**
+     * @param metrics times the packages rendered on {@code pool} when not {@code null}
+     */
+    public static void write(File outputFile, Jacoco.Report report, Collection<String> sources, ForkJoinPool pool,
+            ConversionMetrics metrics) throws IOException, XMLStreamException {
+        write(Channels.newOutputStream(FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), report, sources, pool, metrics);
+    }
+
+    /**
+     * Writes the report into {@code out} and closes it.
+     */
+    public static void write(OutputStream out, Jacoco.Report report, Collection<String> sources, ForkJoinPool pool,
+            ConversionMetrics metrics) throws IOException, XMLStreamException {
+        write(out, report, sources, pool, metrics, new StringPool());
+    }
+
+    /**
+     * @param strings shares the repeated strings with the rest of the conversion
+     */
+    public static void write(OutputStream out, Jacoco.Report report, Collection<String> sources, ForkJoinPool pool,
+            ConversionMetrics metrics, StringPool strings) throws IOException, XMLStreamException {
+        try (CoberturaWriter writer = new CoberturaWriter(out)) {
+            writer.setPool(pool);
+            writer.setMetrics(metrics);
+            writer.setStrings(strings);
+            writer.startCoverage(report, sources);
+            for (Jacoco.PackageElement packageElement : report.getPackages()) {
+                writer.writePackage(packageElement);
+            }
+            for (Jacoco.Group group : report.getGroups()) {
+                for (Jacoco.PackageElement packageElement : group.getPackages()) {
+                    writer.writePackage(packageElement);
+                }
+            }
+            writer.endCoverage();
+        }
+    }
+
+    /**
+     * Streams packages into a temporary file next to the output file while the report is being read, the final
+     * document is assembled once the report counters, which JaCoCo writes last, are known.
+     */
+    static class Spool implements Closeable {
+        private final File spoolFile;
+        private final FileChannel channel;
+        private final CoberturaWriter writer;
+
+        /**
+         * @param pool renders the packages concurrently when not {@code null}
+         */
+        Spool(File outputFile, ForkJoinPool pool) throws IOException, XMLStreamException {
+            this.spoolFile = File.createTempFile(outputFile.getName(), ".packages", outputFile.getAbsoluteFile()
+                    .getParentFile());
+            this.channel = FileChannel.open(spoolFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            this.writer = new CoberturaWriter(Channels.newOutputStream(channel), true);
+            this.writer.setPool(pool);
+        }
+
+        public void setMetrics(ConversionMetrics metrics) {
+            writer.setMetrics(metrics);
+        }
+
+        public void setStrings(StringPool strings) {
+            writer.setStrings(strings);
+        }
+
+        public void setMaxPendingBytes(long maxPendingBytes) {
+            writer.setMaxPendingBytes(maxPendingBytes);
+        }
+
+        public void writePackage(Jacoco.PackageElement packageElement) throws XMLStreamException {
+            writer.writePackage(packageElement);
+        }
+
+        /**
+         * Writes the document into {@code out} and closes it.
+         */
+        public void finish(Jacoco.Report report, Collection<String> sources, OutputStream out)
+                throws IOException, XMLStreamException {
+            writer.flush();
+            try (CoberturaWriter document = new CoberturaWriter(out)) {
+                document.startCoverage(report, sources);
+                document.appendPackages(channel, writer.getPackageCount());
+                document.endCoverage();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.close();
+            } finally {
+                channel.close();
+                spoolFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Packs whole packages into as few reports of at most {@code maxOutputBytes} as possible, for CI servers which
+     * reject larger coverage reports.
+     * <p>
+     * Every package is rendered and spooled into a temporary file as soon as it has been read, only its size and
+     * counters are kept. Once all packages are known, they are packed first fit by decreasing size and each report
+     * is assembled from the spool, its packages in document order and its rates computed from its packages. A
+     * package larger than the budget gets a report of its own.
+     */
+    static class Shards implements Closeable {
+        /**
+         * Room for the rates of a report, which are only known once its packages are, and the {@code <packages>}
+         * element around them.
+         */
+        private static final int HEADER_SLACK = 128;
+
+        private final long maxOutputBytes;
+        private final File spoolFile;
+        private final FileChannel channel;
+        private final List<Fragment> fragments = new ArrayList<>();
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private final Deque<Long> pendingSizes = new ArrayDeque<>();
+        private long pendingBytes;
+        private long maxPendingBytes;
+        private int spooled;
+        private ForkJoinPool pool;
+        private ConversionMetrics metrics;
+        private StringPool strings = new StringPool();
+
+        /**
+         * @param pool renders the packages concurrently when not {@code null}
+         */
+        Shards(File outputFile, long maxOutputBytes, ForkJoinPool pool) throws IOException {
+            this.maxOutputBytes = maxOutputBytes;
+            this.pool = pool;
+            this.spoolFile = File.createTempFile(outputFile.getName(), ".packages", outputFile.getAbsoluteFile()
+                    .getParentFile());
+            this.channel = FileChannel.open(spoolFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        /**
+         * @return the report of shard {@code shard}, counted from 1, e.g. {@code cobertura-1.xml}
+         */
+        static File shardFile(File outputFile, int shard) {
+            return CoberturaOutput.suffixedFile(outputFile, String.valueOf(shard));
+        }
+
+        public void setMetrics(ConversionMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public void setStrings(StringPool strings) {
+            this.strings = strings;
+        }
+
+        /**
+         * Spools rendered packages earlier once the estimated size of the pending ones exceeds
+         * {@code maxPendingBytes}, {@code 0} only limits their number.
+         */
+        public void setMaxPendingBytes(long maxPendingBytes) {
+            this.maxPendingBytes = maxPendingBytes;
+        }
+
+        public void writePackage(Jacoco.PackageElement packageElement) throws IOException, XMLStreamException {
+            fragments.add(new Fragment(packageElement.getName(), packageElement.getCounterTable()));
+            StringPool strings = this.strings;
+            if (pool == null) {
+                spool(render(packageElement, strings));
+            } else {
+                Callable<byte[]> task = () -> render(packageElement, strings);
+                pending.add(pool.submit(metrics != null ? metrics.timed(ConversionMetrics.WRITE, task) : task));
+                long size = maxPendingBytes > 0 ? PackageSpill.estimatedBytes(packageElement) : 0;
+                pendingSizes.add(size);
+                pendingBytes += size;
+                while (pending.size() > 2 * pool.getParallelism()
+                        || maxPendingBytes > 0 && pendingBytes > maxPendingBytes && !pending.isEmpty()) {
+                    spoolPending();
+                }
+            }
+        }
+
+        private void spoolPending() throws IOException, XMLStreamException {
+            pendingBytes -= pendingSizes.remove();
+            spool(await(pending.remove()));
+        }
+
+        private void spool(byte[] bytes) throws IOException {
+            Fragment fragment = fragments.get(spooled++);
+            fragment.position = channel.position();
+            fragment.size = bytes.length;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * @return the names of the packages which alone exceed {@code maxOutputBytes}
+         */
+        public List<String> oversizedPackages(Jacoco.Report report, Collection<String> sources)
+                throws IOException, XMLStreamException {
+            long capacity = maxOutputBytes - overhead(report, sources);
+            return fragments.stream().filter(fragment -> fragment.size > capacity).map(fragment -> fragment.name)
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * Writes the shards, {@code report} contributes its name and session infos.
+         *
+         * @return the shard files, as named before compression
+         */
+        public List<File> finish(Jacoco.Report report, Collection<String> sources, File outputFile,
+                CoberturaOutput output) throws IOException, XMLStreamException {
+            while (!pending.isEmpty()) {
+                spoolPending();
+            }
+            List<File> files = new ArrayList<>();
+            int shard = 0;
+            for (List<Fragment> bin : pack(maxOutputBytes - overhead(report, sources))) {
+                Jacoco.Report shardData = new Jacoco.Report();
+                shardData.setName(report.getName());
+                shardData.setSessionInfos(report.getSessionInfos());
+                bin.forEach(fragment -> shardData.getCounterTable().accumulate(fragment.counters));
+
+                File shardFile = shardFile(outputFile, ++shard);
+                try (OutputStream out = output.open(shardFile); CoberturaWriter document = new CoberturaWriter(out)) {
+                    document.startCoverage(shardData, sources);
+                    for (Fragment fragment : bin) {
+                        document.appendPackages(channel, fragment.position, fragment.size, 1);
+                    }
+                    document.endCoverage();
+                }
+                files.add(shardFile);
+            }
+            return files;
+        }
+
+        /**
+         * @return the packages of every shard in document order, shards ordered by their first package
+         */
+        private List<List<Fragment>> pack(long capacity) {
+            List<Fragment> bySize = new ArrayList<>(fragments);
+            bySize.sort(Comparator.comparingLong((Fragment fragment) -> fragment.size).reversed());
+            List<List<Fragment>> bins = new ArrayList<>();
+            List<Long> binSizes = new ArrayList<>();
+            for (Fragment fragment : bySize) {
+                int bin = 0;
+                while (bin < bins.size() && binSizes.get(bin) + fragment.size > capacity) {
+                    bin++;
+                }
+                if (bin == bins.size()) {
+                    bins.add(new ArrayList<>());
+                    binSizes.add(0L);
+                }
+                bins.get(bin).add(fragment);
+                binSizes.set(bin, binSizes.get(bin) + fragment.size);
+            }
+            if (bins.isEmpty()) {
+                bins.add(new ArrayList<>());
+            }
+            Comparator<Fragment> documentOrder = Comparator.comparingLong(fragment -> fragment.position);
+            bins.forEach(bin -> bin.sort(documentOrder));
+            bins.sort(Comparator.comparing(bin -> bin.isEmpty() ? 0 : bin.get(0).position));
+            return bins;
+        }
+
+        private long overhead(Jacoco.Report report, Collection<String> sources)
+                throws IOException, XMLStreamException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Jacoco.Report header = new Jacoco.Report();
+            header.setSessionInfos(report.getSessionInfos());
+            try (CoberturaWriter document = new CoberturaWriter(bytes)) {
+                document.startCoverage(header, sources);
+                document.endCoverage();
+            }
+            return bytes.size() + HEADER_SLACK;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // only left over when writing failed
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            pendingSizes.clear();
+            try {
+                channel.close();
+            } finally {
+                spoolFile.delete();
+            }
+        }
+
+        private static class Fragment {
+            final String name;
+            final Jacoco.CounterTable counters;
+            long position;
+            long size;
+
+            Fragment(String name, Jacoco.CounterTable counters) {
+                this.name = name;
+                this.counters = counters;
+            }
+        }
+    }
+
+    private final OutputStream target;
+    private final OutputStream out;
+    private final XMLStreamWriter writer;
+    private int depth;
+    private boolean lastWasStart;
+    private boolean packagesStarted;
+    private int packageCount;
+    private ForkJoinPool pool;
+    private ConversionMetrics metrics;
+    private StringPool strings = new StringPool();
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final Deque<Long> pendingSizes = new ArrayDeque<>();
+    private long pendingBytes;
+    private long maxPendingBytes;
+
+    CoberturaWriter(OutputStream out) throws XMLStreamException {
+        this(out, false);
+    }
+
+    /**
+     * @param fragment whether only {@code <package>} elements are written, to be appended to a document later
+     */
+    CoberturaWriter(OutputStream out, boolean fragment) throws XMLStreamException {
+        this.target = out;
+        this.out = out instanceof ByteArrayOutputStream ? out : new BufferedOutputStream(out, 1 << 16);
+        this.writer = FACTORY.createXMLStreamWriter(this.out, "UTF-8");
+        if (fragment) {
+            this.depth = 2;
+            this.packagesStarted = true;
+        }
+    }
+
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * Renders the packages on {@code pool}, each into its own buffer, while they are still written in the order
+     * they were passed. At most two packages per thread are pending at a time.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Times the packages rendered on the pool as writing, the calling thread is timed by the caller.
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setStrings(StringPool strings) {
+        this.strings = strings;
+    }
+
+    /**
+     * Writes rendered packages earlier once the estimated size of the pending ones exceeds {@code maxPendingBytes},
+     * {@code 0} only limits their number.
+     */
+    public void setMaxPendingBytes(long maxPendingBytes) {
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    public void startCoverage(Jacoco.Report report, Collection<String> sources)
+            throws IOException, XMLStreamException {
+        out.write(PROLOG.getBytes(StandardCharsets.UTF_8));
+
+        start("coverage");
+        writer.writeAttribute("timestamp", String.valueOf(report.timestamp()));
+        writeRates(report);
+
+        start("sources");
+        for (String source : sources.isEmpty() ? List.of(".") : sources) {
+            start("source");
+            writer.writeCharacters(source);
+            end();
+        }
+        end();
+    }
+
+    public void writePackage(Jacoco.PackageElement packageElement) throws XMLStreamException {
+        startPackages();
+        packageCount++;
+
+        if (pool == null) {
+            writePackageElement(packageElement);
+        } else {
+            Callable<byte[]> task = () -> render(packageElement, strings);
+            pending.add(pool.submit(metrics != null ? metrics.timed(ConversionMetrics.WRITE, task) : task));
+            long size = maxPendingBytes > 0 ? PackageSpill.estimatedBytes(packageElement) : 0;
+            pendingSizes.add(size);
+            pendingBytes += size;
+            while (pending.size() > 2 * pool.getParallelism()
+                    || maxPendingBytes > 0 && pendingBytes > maxPendingBytes && !pending.isEmpty()) {
+                writePending();
+            }
+        }
+    }
+
+    private static byte[] render(Jacoco.PackageElement packageElement, StringPool strings)
+            throws IOException, XMLStreamException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 12);
+        try (CoberturaWriter fragment = new CoberturaWriter(bytes, true)) {
+            fragment.setStrings(strings);
+            fragment.writePackageElement(packageElement);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] await(Future<byte[]> rendering) throws XMLStreamException {
+        try {
+            return rendering.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XMLStreamException("Interrupted while rendering packages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XMLStreamException) {
+                throw (XMLStreamException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new XMLStreamException(e.getCause());
+        }
+    }
+
+    private void writePending() throws XMLStreamException {
+        pendingBytes -= pendingSizes.remove();
+        byte[] fragment = await(pending.remove());
+
+        // closes a pending start tag before the raw write
+        writer.writeCharacters("");
+        writer.flush();
+        try {
+            out.write(fragment);
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+        lastWasStart = false;
+    }
+
+    private void writeAllPending() throws XMLStreamException {
+        while (!pending.isEmpty()) {
+            writePending();
+        }
+    }
+
+    private void writePackageElement(Jacoco.PackageElement packageElement) throws XMLStreamException {
+        start("package");
+        writer.writeAttribute("name", packageElement.getName() != null ? packageElement.getName() : "");
+        writeRates(packageElement);
+
+        if (packageElement.getClasses().isEmpty()) {
+            empty("classes");
+        } else {
+            Cobertura.LineIndex index = new Cobertura.LineIndex(packageElement);
+            start("classes");
+            for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+                writeClass(classElement, packageElement, index);
+            }
+            end();
+        }
+        end();
+    }
+
+    /**
+     * Appends packages which were already written by another writer at the {@code <packages>} level.
+     */
+    public void appendPackages(FileChannel spool, int count) throws IOException, XMLStreamException {
+        appendPackages(spool, 0, spool.size(), count);
+    }
+
+    /**
+     * Appends the {@code count} packages found in {@code size} bytes of {@code spool} from {@code position} on.
+     */
+    public void appendPackages(FileChannel spool, long position, long size, int count)
+            throws IOException, XMLStreamException {
+        if (count == 0) {
+            return;
+        }
+        writeAllPending();
+        startPackages();
+        packageCount += count;
+
+        // closes the pending start tag before the raw copy
+        writer.writeCharacters("");
+        flush();
+
+        long end = position + size;
+        WritableByteChannel channel = Channels.newChannel(target);
+        while (position < end) {
+            position += spool.transferTo(position, end - position, channel);
+        }
+        lastWasStart = false;
+    }
+
+    public void endCoverage() throws XMLStreamException {
+        writeAllPending();
+        if (packagesStarted) {
+            end();
+        } else {
+            empty("packages");
+        }
+        end();
+        writer.writeEndDocument();
+    }
+
+    private void startPackages() throws XMLStreamException {
+        if (!packagesStarted) {
+            packagesStarted = true;
+            start("packages");
+        }
+    }
+
+    private void writeClass(Jacoco.ClassElement classElement, Jacoco.PackageElement packageElement,
+            Cobertura.LineIndex index) throws XMLStreamException {
+        String packageName = (packageElement.getName() != null) ? packageElement.getName() : "";
+        String sourceFilename = (classElement.getSourcefilename() != null) ? classElement.getSourcefilename() : "";
+
+        start("class");
+        writer.writeAttribute("name", classElement.getName() != null ? classElement.getName() : "");
+        writer.writeAttribute("filename", strings.filename(packageName, sourceFilename));
+        writeRates(classElement);
+
+        if (classElement.getMethods().isEmpty()) {
+            empty("methods");
+        } else {
+            start("methods");
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                writeMethod(methodElement, classElement.getSourcefilename(), index);
+            }
+            end();
+        }
+        end();
+    }
+
+    private void writeMethod(Jacoco.MethodElement methodElement, String sourceFilename,
+            Cobertura.LineIndex index) throws XMLStreamException {
+        start("method");
+        writer.writeAttribute("name", methodElement.getName() != null ? methodElement.getName() : "");
+        writer.writeAttribute("signature", methodElement.getDesc() != null ? methodElement.getDesc() : "");
+        writeRates(methodElement);
+
+        Jacoco.LineTable lines = index.linesForMethod(methodElement, sourceFilename);
+        if (lines.isEmpty()) {
+            empty("lines");
+        } else {
+            start("lines");
+            for (int i = 0; i < lines.size(); i++) {
+                writeLine(lines, i);
+            }
+            end();
+        }
+        end();
+    }
+
+    private void writeLine(Jacoco.LineTable lines, int i) throws XMLStreamException {
+        int covered = lines.getCb(i);
+        int branches = lines.getMb(i) + covered;
+        if (branches > 0) {
+            start("line");
+            writeLineAttributes(lines, i, true);
+            writer.writeAttribute("condition-coverage", strings.conditionCoverage(covered, branches));
+            start("conditions");
+            empty("condition");
+            writer.writeAttribute("number", "0");
+            writer.writeAttribute("type", "jump");
+            writer.writeAttribute("coverage", strings.percentage(covered, branches));
+            end();
+            end();
+        } else {
+            empty("line");
+            writeLineAttributes(lines, i, false);
+        }
+    }
+
+    private void writeLineAttributes(Jacoco.LineTable lines, int i, boolean branch) throws XMLStreamException {
+        writer.writeAttribute("number", String.valueOf(lines.getNr(i)));
+        writer.writeAttribute("hits", lines.getCi(i) > 0 ? "1" : "0");
+        writer.writeAttribute("branch", branch ? "true" : "false");
+    }
+
+    private void writeRates(Jacoco.Counters counters) throws XMLStreamException {
+        writer.writeAttribute("line-rate", String.valueOf(counters.lineRate()));
+        writer.writeAttribute("branch-rate", String.valueOf(counters.branchRate()));
+        writer.writeAttribute("complexity", String.valueOf(counters.complexity()));
+    }
+
+    private void start(String name) throws XMLStreamException {
+        indent();
+        writer.writeStartElement(name);
+        depth++;
+        lastWasStart = true;
+    }
+
+    private void empty(String name) throws XMLStreamException {
+        indent();
+        writer.writeEmptyElement(name);
+        lastWasStart = false;
+    }
+
+    private void end() throws XMLStreamException {
+        depth--;
+        if (!lastWasStart) {
+            indent();
+        }
+        writer.writeEndElement();
+        lastWasStart = false;
+    }
+
+    private void indent() throws XMLStreamException {
+        writer.writeCharacters(NEWLINE, 0, 1 + Math.min(depth * INDENT, NEWLINE.length - 1));
+    }
+
+    public void flush() throws IOException {
+        try {
+            writeAllPending();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // only left over when writing failed
+        pending.forEach(future -> future.cancel(true));
+        pending.clear();
+        pendingSizes.clear();
+        try {
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            out.close();
+        }
+    }
+}
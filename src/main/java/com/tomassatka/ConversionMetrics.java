@@ -0,0 +1,220 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall time, CPU time and allocated bytes per phase of a conversion, the size of the converted report and the peak
+ * heap usage. Safe to use from several threads.
+ * <p>
+ * The peak heap usage is the one of the whole JVM since it started, or since a tool reset the peaks of the heap
+ * pools; it is not reset here, as other conversions or builds may run in the same JVM at the same time.
+ * <p>
+ * A phase is timed on every thread working on it and the times of all threads are added up. Phases nest, a phase
+ * started while another one is running on the same thread pauses the other one, so no time is counted twice. CPU
+ * time and allocated bytes are reported as {@code n/a}, {@code -1} in JSON, when the JVM does not measure them.
+ */
+class ConversionMetrics {
+
+    static final String READ = "read";
+    static final String TRANSFORM = "transform";
+    static final String WRITE = "write";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION = THREADS instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final ThreadLocal<Deque<Timer>> running = ThreadLocal.withInitial(ArrayDeque::new);
+    private final LongAdder packages = new LongAdder();
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder methods = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder conditions = new LongAdder();
+    private final long start = System.nanoTime();
+    private long wallTime;
+    private long peakHeap;
+
+    ConversionMetrics() {
+        for (String phase : new String[] {READ, TRANSFORM, WRITE}) {
+            phases.put(phase, new Phase());
+        }
+    }
+
+    /**
+     * Starts timing {@code phase} on the current thread until the returned timer is closed. The timer is meant as
+     * the resource of a {@code try} block which never references it, so methods timing a phase suppress the
+     * {@code try} lint warning.
+     */
+    public Timer time(String phase) {
+        Deque<Timer> timers = running.get();
+        if (!timers.isEmpty()) {
+            timers.peek().stop();
+        }
+        Timer timer = new Timer(phases.get(phase));
+        timers.push(timer);
+        return timer;
+    }
+
+    /**
+     * @return {@code task} timed as {@code phase} on whatever thread runs it
+     */
+    @SuppressWarnings("try")
+    public <T> Callable<T> timed(String phase, Callable<T> task) {
+        return () -> {
+            try (Timer timer = time(phase)) {
+                return task.call();
+            }
+        };
+    }
+
+    public void count(Jacoco.PackageElement packageElement) {
+        packages.increment();
+        classes.add(packageElement.getClasses().size());
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            methods.add(classElement.getMethods().size());
+        }
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            Jacoco.LineTable lineTable = sourceFile.getLineTable();
+            lines.add(lineTable.size());
+            for (int i = 0; i < lineTable.size(); i++) {
+                if (lineTable.getMb(i) + lineTable.getCb(i) > 0) {
+                    conditions.increment();
+                }
+            }
+        }
+    }
+
+    public void count(Jacoco.Report report) {
+        report.getPackages().forEach(this::count);
+        report.getGroups().forEach(group -> group.getPackages().forEach(this::count));
+    }
+
+    /**
+     * Stops the clock of the whole conversion and records the peak heap usage of the JVM.
+     */
+    public void finish() {
+        wallTime = System.nanoTime() - start;
+        peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+    }
+
+    public void log(JacocoToCobertura.Log log) {
+        log.info("Conversion metrics:");
+        phases.forEach((name, phase) -> log.info(String.format(Locale.ROOT,
+                "  %-9s %8d ms wall, %8s ms CPU, %10s MB allocated", name + ":", millis(phase.wallTime.sum()),
+                CPU_TIME ? String.valueOf(millis(phase.cpuTime.sum())) : "n/a",
+                ALLOCATION ? megabytes(phase.allocated.sum()) : "n/a")));
+        log.info(String.format(Locale.ROOT, "  %-9s %8d ms wall", "total:", millis(wallTime)));
+        log.info("  " + packages.sum() + " packages, " + classes.sum() + " classes, " + methods.sum() + " methods, "
+                + lines.sum() + " lines, " + conditions.sum() + " conditions");
+        log.info("  peak heap of the JVM: " + megabytes(peakHeap) + " MB");
+    }
+
+    public void write(File file) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"wallTimeMs\": ").append(millis(wallTime)).append(",\n");
+        json.append("  \"phases\": {\n");
+        int i = 0;
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase phase = entry.getValue();
+            json.append("    ").append(Json.string(entry.getKey())).append(": {")
+                    .append("\"wallTimeMs\": ").append(millis(phase.wallTime.sum()))
+                    .append(", \"cpuTimeMs\": ").append(CPU_TIME ? millis(phase.cpuTime.sum()) : -1)
+                    .append(", \"allocatedBytes\": ").append(ALLOCATION ? phase.allocated.sum() : -1)
+                    .append(++i < phases.size() ? "},\n" : "}\n");
+        }
+        json.append("  },\n");
+        json.append("  \"packages\": ").append(packages.sum()).append(",\n");
+        json.append("  \"classes\": ").append(classes.sum()).append(",\n");
+        json.append("  \"methods\": ").append(methods.sum()).append(",\n");
+        json.append("  \"lines\": ").append(lines.sum()).append(",\n");
+        json.append("  \"conditions\": ").append(conditions.sum()).append(",\n");
+        json.append("  \"jvmPeakHeapBytes\": ").append(peakHeap).append("\n");
+        json.append("}\n");
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / (1024.0 * 1024.0));
+    }
+
+    private static class Phase {
+        final LongAdder wallTime = new LongAdder();
+        final LongAdder cpuTime = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+    }
+
+    /**
+     * Time of a phase on the current thread, must be closed on the thread which started it.
+     */
+    class Timer implements AutoCloseable {
+        private final Phase phase;
+        private long wallStart;
+        private long cpuStart;
+        private long allocatedStart;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            start();
+        }
+
+        private void start() {
+            wallStart = System.nanoTime();
+            cpuStart = cpuTime();
+            allocatedStart = allocatedBytes();
+        }
+
+        private void stop() {
+            phase.wallTime.add(System.nanoTime() - wallStart);
+            phase.cpuTime.add(cpuTime() - cpuStart);
+            phase.allocated.add(allocatedBytes() - allocatedStart);
+        }
+
+        @Override
+        public void close() {
+            stop();
+            Deque<Timer> timers = running.get();
+            timers.pop();
+            if (!timers.isEmpty()) {
+                timers.peek().start();
+            }
+        }
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+                Thread.currentThread().getId()) : 0;
+    }
+}
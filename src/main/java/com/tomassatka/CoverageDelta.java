@@ -0,0 +1,753 @@
+package com.tomassatka;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Compares the line coverage of a current report with a baseline report, e.g. of a merge request with the one of its
+ * target branch. Either report may be JaCoCo or Cobertura XML.
+ * <p>
+ * The baseline is read first into an index of the line hits of every source file, hashed by package and path, and
+ * the line counters of its classes. The current report is then read package by package, every package is compared
+ * with the index and its delta is written as soon as it has been read, so each report is parsed once and only the
+ * index of the baseline is kept in memory. A package occurring several times, e.g. in several groups of a JaCoCo
+ * {@code report-aggregate}, is compared part by part: every occurrence takes the classes and source files it has
+ * from the index, and what no occurrence took is gone from the current report.
+ * <p>
+ * A line is new uncovered when the current report has it uncovered while the baseline has it covered or not at all,
+ * and new covered the other way round. Lines are compared by number, so code moved within a file shows up as changed
+ * lines.
+ */
+class CoverageDelta {
+
+    static final List<String> FORMATS = List.of("json", "cobertura");
+
+    /**
+     * Receives the packages of a report in document order.
+     */
+    interface Handler {
+        void packageCoverage(PackageCoverage packageCoverage);
+    }
+
+    /**
+     * Receives the packages whose coverage changed, then the totals.
+     */
+    interface Output extends Closeable {
+        void packageDelta(PackageDelta delta) throws IOException;
+
+        void finish(Totals totals) throws IOException;
+    }
+
+    /**
+     * Reads a JaCoCo or Cobertura report, told apart by the root element.
+     *
+     * @param parser the parser of JaCoCo reports, {@code stax} or {@code mapped}
+     */
+    public static void read(File inputFile, String parser, Handler handler) throws IOException, XMLStreamException {
+        if (isCobertura(inputFile)) {
+            CoberturaReader.read(inputFile, handler);
+            return;
+        }
+        JacocoReader.Engine engine = "mapped".equals(parser) ? JacocoScanner::read : JacocoReader::read;
+        engine.read(inputFile, new JacocoReader.Handler() {
+            @Override
+            public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                handler.packageCoverage(PackageCoverage.of(packageElement));
+            }
+        });
+    }
+
+    static boolean isCobertura(File inputFile) throws IOException, XMLStreamException {
+        try (InputStream in = JacocoReader.open(inputFile)) {
+            XMLStreamReader reader = JacocoReader.FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return "coverage".equals(reader.getLocalName());
+                    }
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Compares {@code current} with {@code baseline} and writes the delta into {@code output}.
+     *
+     * @throws JacocoToCoberturaException naming the report that could not be read
+     * @throws IOException when the delta could not be written
+     */
+    public static Totals compare(File baseline, File current, String parser, Output output) throws IOException {
+        Map<String, PackageCoverage> index = new LinkedHashMap<>();
+        Totals totals = new Totals();
+        readReport(baseline, parser, packageCoverage -> {
+            totals.baseline.add(packageCoverage.counts());
+            index.merge(key(packageCoverage.getName()), packageCoverage, PackageCoverage::merge);
+        });
+
+        Set<String> compared = new HashSet<>();
+        try {
+            readReport(current, parser, packageCoverage -> {
+                totals.current.add(packageCoverage.counts());
+                String key = key(packageCoverage.getName());
+                PackageCoverage previous = index.get(key);
+                compared.add(key);
+                PackageDelta delta = new PackageDelta(previous != null ? previous.take(packageCoverage) : null,
+                        packageCoverage);
+                totals.add(delta);
+                if (delta.isChanged()) {
+                    try {
+                        output.packageDelta(delta);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // packages gone from the current report, and classes and source files no occurrence of their package took
+        for (Map.Entry<String, PackageCoverage> removed : index.entrySet()) {
+            PackageCoverage packageCoverage = removed.getValue();
+            if (!compared.contains(removed.getKey())) {
+                PackageDelta delta = new PackageDelta(packageCoverage, null);
+                totals.add(delta);
+                output.packageDelta(delta);
+            } else if (!packageCoverage.isEmpty()) {
+                PackageDelta delta = new PackageDelta(packageCoverage,
+                        new PackageCoverage(packageCoverage.getName()));
+                totals.add(delta);
+                output.packageDelta(delta);
+            }
+        }
+        output.finish(totals);
+        return totals;
+    }
+
+    private static void readReport(File inputFile, String parser, Handler handler) {
+        try {
+            read(inputFile, parser, handler);
+        } catch (IOException | XMLStreamException e) {
+            throw new JacocoToCoberturaException("Reading report `" + inputFile + "` error: `" + e.getMessage() + "`",
+                    e);
+        }
+    }
+
+    /**
+     * JaCoCo names packages and classes {@code com/example/Foo}, other Cobertura tools {@code com.example.Foo}.
+     */
+    static String key(String name) {
+        return name.replace('.', '/');
+    }
+
+    /**
+     * @return the line rate of {@code missed} and {@code covered} lines, {@code 0} without lines
+     */
+    static double rate(long missed, long covered) {
+        return missed + covered > 0 ? (double) covered / (missed + covered) : 0.0;
+    }
+
+    /**
+     * Line numbers and their hits, sorted by line number once complete. JaCoCo reports hit a covered line once.
+     */
+    static class LineHits {
+        private int[] numbers = new int[16];
+        private int[] hits = new int[16];
+        private int size;
+
+        public void add(int number, int hit) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, Math.max(16, size * 2));
+                hits = Arrays.copyOf(hits, Math.max(16, size * 2));
+            }
+            numbers[size] = number;
+            hits[size] = hit;
+            size++;
+        }
+
+        /**
+         * Sorts the lines by number, a line added several times keeps its highest hits.
+         */
+        public void sort() {
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = numbers[i - 1] < numbers[i];
+            }
+            if (!sorted) {
+                long[] lines = new long[size];
+                for (int i = 0; i < size; i++) {
+                    lines[i] = (long) numbers[i] << 32 | hits[i] & 0xffffffffL;
+                }
+                Arrays.sort(lines);
+                int unique = 0;
+                for (long line : lines) {
+                    int number = (int) (line >>> 32);
+                    int hit = (int) line;
+                    if (unique > 0 && numbers[unique - 1] == number) {
+                        hits[unique - 1] = Math.max(hits[unique - 1], hit);
+                    } else {
+                        numbers[unique] = number;
+                        hits[unique] = hit;
+                        unique++;
+                    }
+                }
+                size = unique;
+            }
+            if (numbers.length > size) {
+                numbers = Arrays.copyOf(numbers, size);
+                hits = Arrays.copyOf(hits, size);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getNumber(int i) {
+            return numbers[i];
+        }
+
+        public int getHits(int i) {
+            return hits[i];
+        }
+
+        /**
+         * @return the hits of line {@code number}, {@code -1} when the line is not listed
+         */
+        public int find(int number) {
+            int i = Arrays.binarySearch(numbers, 0, size, number);
+            return i >= 0 ? hits[i] : -1;
+        }
+
+        public int covered() {
+            int covered = 0;
+            for (int i = 0; i < size; i++) {
+                if (hits[i] > 0) {
+                    covered++;
+                }
+            }
+            return covered;
+        }
+
+        static LineHits merge(LineHits first, LineHits second) {
+            LineHits merged = new LineHits();
+            for (int i = 0; i < first.size; i++) {
+                merged.add(first.numbers[i], first.hits[i]);
+            }
+            for (int i = 0; i < second.size; i++) {
+                merged.add(second.numbers[i], second.hits[i]);
+            }
+            merged.sort();
+            return merged;
+        }
+    }
+
+    /**
+     * The line coverage of a package: the missed and covered lines of its classes and the line hits of its source
+     * files, by path.
+     * <p>
+     * The lines of a class are those of its methods and the lines of a source file those of its classes. JaCoCo only
+     * reports where methods start, so a method of a JaCoCo report spans the source file lines up to the next method,
+     * as in the Cobertura reports of this plugin; a JaCoCo report and its conversion thus agree on every line.
+     */
+    static class PackageCoverage {
+        private final String name;
+        private final Map<String, int[]> classes = new LinkedHashMap<>();
+        private final Map<String, LineHits> files = new LinkedHashMap<>();
+
+        PackageCoverage(String name) {
+            this.name = name;
+        }
+
+        static PackageCoverage of(Jacoco.PackageElement packageElement) {
+            String packageName = packageElement.getName() != null ? packageElement.getName() : "";
+            PackageCoverage packageCoverage = new PackageCoverage(packageName);
+            Cobertura.LineIndex index = new Cobertura.LineIndex(packageElement);
+            for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+                LineHits lines = new LineHits();
+                for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                    Jacoco.LineTable table = index.linesForMethod(methodElement, classElement.getSourcefilename());
+                    for (int i = 0; i < table.size(); i++) {
+                        lines.add(table.getNr(i), table.getCi(i) > 0 ? 1 : 0);
+                    }
+                }
+                lines.sort();
+                int covered = lines.covered();
+                packageCoverage.addClass(classElement.getName(), lines.size() - covered, covered);
+                if (classElement.getSourcefilename() != null) {
+                    packageCoverage.addLines(packageName.isEmpty() ? classElement.getSourcefilename()
+                            : packageName + "/" + classElement.getSourcefilename(), lines);
+                }
+            }
+            return packageCoverage;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void addClass(String className, int missed, int covered) {
+            classes.merge(className, new int[] {missed, covered},
+                    (first, second) -> new int[] {first[0] + second[0], first[1] + second[1]});
+        }
+
+        public void addLines(String file, LineHits lines) {
+            files.merge(file.replace('\\', '/'), lines, LineHits::merge);
+        }
+
+        /**
+         * @return the missed and covered lines of all source files
+         */
+        public long[] counts() {
+            long[] counts = new long[2];
+            for (LineHits lines : files.values()) {
+                int covered = lines.covered();
+                counts[0] += lines.size() - covered;
+                counts[1] += covered;
+            }
+            return counts;
+        }
+
+        boolean isEmpty() {
+            return classes.isEmpty() && files.isEmpty();
+        }
+
+        /**
+         * Removes the classes and source files {@code current} has from this package.
+         *
+         * @return the removed classes and source files
+         */
+        PackageCoverage take(PackageCoverage current) {
+            PackageCoverage taken = new PackageCoverage(name);
+            Set<String> classKeys = new HashSet<>();
+            current.classes.keySet().forEach(className -> classKeys.add(key(className)));
+            classes.entrySet().removeIf(classCounts -> {
+                if (!classKeys.contains(key(classCounts.getKey()))) {
+                    return false;
+                }
+                taken.classes.put(classCounts.getKey(), classCounts.getValue());
+                return true;
+            });
+            for (String file : current.files.keySet()) {
+                LineHits lines = files.remove(file);
+                if (lines != null) {
+                    taken.files.put(file, lines);
+                }
+            }
+            return taken;
+        }
+
+        /**
+         * Merges a package occurring several times, e.g. in several groups of a JaCoCo report.
+         */
+        static PackageCoverage merge(PackageCoverage first, PackageCoverage second) {
+            second.classes.forEach((className, counts) -> first.addClass(className, counts[0], counts[1]));
+            second.files.forEach(first::addLines);
+            return first;
+        }
+    }
+
+    /**
+     * The missed and covered lines of a package or class in both reports, {@code null} for the report lacking it.
+     */
+    static class Change {
+        final String name;
+        final long[] baseline;
+        final long[] current;
+
+        Change(String name, long[] baseline, long[] current) {
+            this.name = name;
+            this.baseline = baseline;
+            this.current = current;
+        }
+
+        boolean isChanged() {
+            return !Arrays.equals(baseline, current);
+        }
+    }
+
+    /**
+     * A package compared with the baseline, its changed classes and for every source file the current lines whose
+     * coverage changed, new lines included.
+     */
+    static class PackageDelta {
+        final Change change;
+        final List<Change> classes = new ArrayList<>();
+        final Map<String, LineHits> changedLines = new LinkedHashMap<>();
+
+        /**
+         * @param baseline the package in the baseline, {@code null} when it is new
+         * @param current the package in the current report, {@code null} when it is gone
+         */
+        PackageDelta(PackageCoverage baseline, PackageCoverage current) {
+            PackageCoverage named = current != null ? current : baseline;
+            change = new Change(named.getName(), baseline != null ? baseline.counts() : null,
+                    current != null ? current.counts() : null);
+
+            Map<String, Map.Entry<String, int[]>> baselineClasses = new LinkedHashMap<>();
+            if (baseline != null) {
+                baseline.classes.forEach((name, classCounts) -> baselineClasses.put(key(name),
+                        Map.entry(name, classCounts)));
+            }
+            if (current != null) {
+                current.classes.forEach((name, classCounts) -> {
+                    Map.Entry<String, int[]> previous = baselineClasses.remove(key(name));
+                    addClass(name, previous != null ? previous.getValue() : null, classCounts);
+                });
+            }
+            // classes gone from the current report
+            baselineClasses.values().forEach(previous -> addClass(previous.getKey(), previous.getValue(), null));
+
+            if (current != null) {
+                current.files.forEach((file, lines) -> {
+                    LineHits previous = baseline != null ? baseline.files.get(file) : null;
+                    LineHits changed = new LineHits();
+                    for (int i = 0; i < lines.size(); i++) {
+                        int hits = lines.getHits(i);
+                        int previousHits = previous != null ? previous.find(lines.getNumber(i)) : -1;
+                        if (previousHits < 0 || previousHits > 0 != hits > 0) {
+                            changed.add(lines.getNumber(i), hits);
+                        }
+                    }
+                    if (changed.size() > 0) {
+                        changed.sort();
+                        changedLines.put(file, changed);
+                    }
+                });
+            }
+        }
+
+        private void addClass(String name, int[] baseline, int[] current) {
+            Change change = new Change(name, baseline != null ? new long[] {baseline[0], baseline[1]} : null,
+                    current != null ? new long[] {current[0], current[1]} : null);
+            if (change.isChanged()) {
+                classes.add(change);
+            }
+        }
+
+        boolean isChanged() {
+            return change.isChanged() || !classes.isEmpty() || !changedLines.isEmpty();
+        }
+    }
+
+    /**
+     * The missed and covered lines of both reports and the number of changed lines.
+     */
+    static class Totals {
+        final Counts baseline = new Counts();
+        final Counts current = new Counts();
+        long newUncoveredLines;
+        long newCoveredLines;
+        int changedPackages;
+
+        void add(PackageDelta delta) {
+            if (delta.isChanged()) {
+                changedPackages++;
+            }
+            for (LineHits lines : delta.changedLines.values()) {
+                int covered = lines.covered();
+                newCoveredLines += covered;
+                newUncoveredLines += lines.size() - covered;
+            }
+        }
+    }
+
+    static class Counts {
+        long missed;
+        long covered;
+
+        void add(long[] counts) {
+            missed += counts[0];
+            covered += counts[1];
+        }
+
+        double rate() {
+            return CoverageDelta.rate(missed, covered);
+        }
+    }
+
+    /**
+     * Writes the delta as JSON, packages in the order of the current report followed by the packages gone from it.
+     */
+    static class JsonDelta implements Output {
+        private final Writer out;
+        private boolean first = true;
+
+        JsonDelta(File outputFile, File baseline, File current) throws IOException {
+            Files.createDirectories(outputFile.getAbsoluteFile().getParentFile().toPath());
+            this.out = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8);
+            out.write("{\n");
+            out.write("  \"baseline\": " + Json.string(baseline.getPath()) + ",\n");
+            out.write("  \"current\": " + Json.string(current.getPath()) + ",\n");
+            out.write("  \"packages\": [");
+        }
+
+        @Override
+        public void packageDelta(PackageDelta delta) throws IOException {
+            StringBuilder json = new StringBuilder(first ? "\n" : ",\n");
+            first = false;
+            json.append("    {\"name\": ").append(Json.string(delta.change.name));
+            change(json, delta.change);
+            json.append(",\n      \"classes\": [");
+            int i = 0;
+            for (Change change : delta.classes) {
+                json.append(i++ == 0 ? "\n" : ",\n");
+                json.append("        {\"name\": ").append(Json.string(change.name));
+                change(json, change);
+                json.append('}');
+            }
+            json.append(i > 0 ? "\n      ]" : "]");
+            json.append(",\n      \"newUncoveredLines\": [");
+            i = 0;
+            for (Map.Entry<String, LineHits> file : delta.changedLines.entrySet()) {
+                LineHits lines = file.getValue();
+                if (lines.covered() == lines.size()) {
+                    continue;
+                }
+                json.append(i++ == 0 ? "\n" : ",\n");
+                json.append("        {\"file\": ").append(Json.string(file.getKey()))
+                        .append(", \"lines\": [");
+                int j = 0;
+                for (int line = 0; line < lines.size(); line++) {
+                    if (lines.getHits(line) == 0) {
+                        json.append(j++ == 0 ? "" : ", ").append(lines.getNumber(line));
+                    }
+                }
+                json.append("]}");
+            }
+            json.append(i > 0 ? "\n      ]}" : "]}");
+            out.write(json.toString());
+        }
+
+        private static void change(StringBuilder json, Change change) {
+            json.append(", \"baseline\": ");
+            counts(json, change.baseline);
+            json.append(", \"current\": ");
+            counts(json, change.current);
+            json.append(", \"lineRateDelta\": ");
+            if (change.baseline != null && change.current != null) {
+                json.append(rate(change.current[0], change.current[1])
+                        - rate(change.baseline[0], change.baseline[1]));
+            } else {
+                json.append("null");
+            }
+        }
+
+        private static void counts(StringBuilder json, long[] counts) {
+            if (counts == null) {
+                json.append("null");
+            } else {
+                json.append("{\"lines\": ").append(counts[0] + counts[1])
+                        .append(", \"coveredLines\": ").append(counts[1])
+                        .append(", \"lineRate\": ").append(rate(counts[0], counts[1])).append('}');
+            }
+        }
+
+        @Override
+        public void finish(Totals totals) throws IOException {
+            StringBuilder json = new StringBuilder(first ? "],\n" : "\n  ],\n");
+            json.append("  \"totals\": {\"baseline\": ");
+            counts(json, new long[] {totals.baseline.missed, totals.baseline.covered});
+            json.append(", \"current\": ");
+            counts(json, new long[] {totals.current.missed, totals.current.covered});
+            json.append(", \"lineRateDelta\": ").append(totals.current.rate() - totals.baseline.rate())
+                    .append(", \"changedPackages\": ").append(totals.changedPackages)
+                    .append(", \"newUncoveredLines\": ").append(totals.newUncoveredLines)
+                    .append(", \"newCoveredLines\": ").append(totals.newCoveredLines).append("}\n");
+            json.append("}\n");
+            out.write(json.toString());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the delta as a Cobertura report of the changed lines only, so coverage annotations of a merge request
+     * show the lines which lost or gained coverage. Every source file with changed lines is a class of its own, the
+     * rates are those of the changed lines. The delta is line based, branch rates and complexity are {@code 0}.
+     * <p>
+     * Packages are spooled into a temporary file next to the output while the current report is read, the rates of
+     * the document are only known at the end.
+     */
+    static class CoberturaDelta implements Output {
+        private static final XMLOutputFactory FACTORY = XMLOutputFactory.newDefaultFactory();
+        private static final String INDENT = "   ";
+
+        private final File outputFile;
+        private final Collection<String> sources;
+        private final long timestamp;
+        private final File spoolFile;
+        private final FileChannel channel;
+        private final OutputStream spoolOut;
+        private final XMLStreamWriter spool;
+
+        /**
+         * @param timestamp the timestamp of the document, in seconds
+         */
+        CoberturaDelta(File outputFile, Collection<String> sources, long timestamp) throws IOException {
+            this.outputFile = outputFile;
+            this.sources = sources;
+            this.timestamp = timestamp;
+            Files.createDirectories(outputFile.getAbsoluteFile().getParentFile().toPath());
+            this.spoolFile = File.createTempFile(outputFile.getName(), ".packages", outputFile.getAbsoluteFile()
+                    .getParentFile());
+            this.channel = FileChannel.open(spoolFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            this.spoolOut = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            try {
+                this.spool = FACTORY.createXMLStreamWriter(spoolOut, "UTF-8");
+            } catch (XMLStreamException e) {
+                channel.close();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void packageDelta(PackageDelta delta) throws IOException {
+            if (delta.changedLines.isEmpty()) {
+                return;
+            }
+            try {
+                long missed = 0;
+                long covered = 0;
+                for (LineHits lines : delta.changedLines.values()) {
+                    missed += lines.size() - lines.covered();
+                    covered += lines.covered();
+                }
+                start(spool, 2, "package");
+                spool.writeAttribute("name", delta.change.name);
+                rates(spool, missed, covered);
+                start(spool, 3, "classes");
+                for (Map.Entry<String, LineHits> file : delta.changedLines.entrySet()) {
+                    writeClass(file.getKey(), file.getValue());
+                }
+                end(spool, 3);
+                end(spool, 2);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void writeClass(String file, LineHits lines) throws XMLStreamException {
+            int extension = file.lastIndexOf('.');
+            start(spool, 4, "class");
+            spool.writeAttribute("name", extension > file.lastIndexOf('/') ? file.substring(0, extension) : file);
+            spool.writeAttribute("filename", file);
+            rates(spool, lines.size() - lines.covered(), lines.covered());
+            indent(spool, 5);
+            spool.writeEmptyElement("methods");
+            start(spool, 5, "lines");
+            for (int i = 0; i < lines.size(); i++) {
+                indent(spool, 6);
+                spool.writeEmptyElement("line");
+                spool.writeAttribute("number", String.valueOf(lines.getNumber(i)));
+                spool.writeAttribute("hits", String.valueOf(lines.getHits(i)));
+                spool.writeAttribute("branch", "false");
+            }
+            end(spool, 5);
+            end(spool, 4);
+        }
+
+        @Override
+        public void finish(Totals totals) throws IOException {
+            try {
+                spool.flush();
+                spoolOut.flush();
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputFile.toPath()),
+                        1 << 16)) {
+                    out.write(CoberturaWriter.PROLOG.getBytes(StandardCharsets.UTF_8));
+                    XMLStreamWriter document = FACTORY.createXMLStreamWriter(out, "UTF-8");
+                    start(document, 0, "coverage");
+                    document.writeAttribute("timestamp", String.valueOf(timestamp));
+                    rates(document, totals.newUncoveredLines, totals.newCoveredLines);
+                    start(document, 1, "sources");
+                    for (String source : sources.isEmpty() ? List.of(".") : sources) {
+                        start(document, 2, "source");
+                        document.writeCharacters(source);
+                        document.writeEndElement();
+                    }
+                    end(document, 1);
+                    start(document, 1, "packages");
+                    // closes the start tag before the raw copy
+                    document.writeCharacters("");
+                    document.flush();
+                    out.flush();
+                    WritableByteChannel target = Channels.newChannel(out);
+                    long position = 0;
+                    while (position < channel.size()) {
+                        position += channel.transferTo(position, channel.size() - position, target);
+                    }
+                    end(document, 1);
+                    end(document, 0);
+                    document.writeEndDocument();
+                    document.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private static void rates(XMLStreamWriter writer, long missed, long covered) throws XMLStreamException {
+            writer.writeAttribute("line-rate", String.valueOf(rate(missed, covered)));
+            writer.writeAttribute("branch-rate", "0.0");
+            writer.writeAttribute("complexity", "0.0");
+        }
+
+        private static void start(XMLStreamWriter writer, int depth, String name) throws XMLStreamException {
+            indent(writer, depth);
+            writer.writeStartElement(name);
+        }
+
+        private static void end(XMLStreamWriter writer, int depth) throws XMLStreamException {
+            indent(writer, depth);
+            writer.writeEndElement();
+        }
+
+        private static void indent(XMLStreamWriter writer, int depth) throws XMLStreamException {
+            writer.writeCharacters("\n" + INDENT.repeat(depth));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                spool.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                channel.close();
+                spoolFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.tomassatka;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Include and exclude glob patterns for the packages, classes and source files of a report.
+ * <p>
+ * Patterns are matched against JaCoCo's names: {@code com/example/Foo} for classes, {@code com/example/Foo.java}
+ * for source files and {@code com/example/} for packages. {@code *} matches within a name segment, {@code **}
+ * across segments and {@code ?} a single character. A name is included when there are no includes or an include
+ * matches it, and no exclude matches it. A source file is also included when an included class of its package was
+ * compiled from it, so an include of classes keeps their lines; the readers hand classes over before the source
+ * files of their package. A package is skipped as a whole when an exclude matches it or no include can match
+ * anything in it, so the readers never build it.
+ * <p>
+ * With a list of {@link ChangedFiles} only the changed source files and the classes compiled from them, matched by
+ * their {@code sourcefilename}, are accepted on top of that.
+ * <p>
+ * JaCoCo's counters of a package still count the excluded classes, so the filter recomputes the counters of
+ * every package from its classes and the counters of the report from its packages.
+ */
+class CoverageFilter {
+
+    static final CoverageFilter NONE = new CoverageFilter(List.of(), List.of());
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final List<Pattern> includePatterns;
+    private final List<Pattern> excludePatterns;
+    private final ChangedFiles changedFiles;
+
+    CoverageFilter(List<String> includes, List<String> excludes) {
+        this(includes, excludes, null);
+    }
+
+    /**
+     * @param changedFiles the only source files converted, with the classes compiled from them; {@code null} for all
+     */
+    CoverageFilter(List<String> includes, List<String> excludes, ChangedFiles changedFiles) {
+        this.changedFiles = changedFiles;
+        this.includes = includes != null ? List.copyOf(includes) : List.of();
+        this.excludes = excludes != null ? List.copyOf(excludes) : List.of();
+        this.includePatterns = this.includes.stream().map(CoverageFilter::compile).collect(Collectors.toList());
+        this.excludePatterns = this.excludes.stream().map(CoverageFilter::compile).collect(Collectors.toList());
+    }
+
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public ChangedFiles getChangedFiles() {
+        return changedFiles;
+    }
+
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty() && changedFiles == null;
+    }
+
+    public boolean acceptPackage(String name) {
+        if (changedFiles != null && !changedFiles.containsPackage(name)) {
+            return false;
+        }
+        String prefix = (name != null ? name : "") + "/";
+        for (Pattern exclude : excludePatterns) {
+            if (exclude.matcher(prefix).matches()) {
+                return false;
+            }
+        }
+        if (includePatterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern include : includePatterns) {
+            // a partial match means a name in the package may still match
+            Matcher matcher = include.matcher(prefix);
+            if (matcher.matches() || matcher.hitEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean acceptClass(String packageName, String name, String sourcefilename) {
+        return accept(name) && (changedFiles == null || changedFiles.contains(packageName, sourcefilename));
+    }
+
+    public boolean acceptSourceFile(String packageName, String name) {
+        return acceptSourceFile(packageName, name, Set.of());
+    }
+
+    /**
+     * @param classSourceFiles the {@code sourcefilename}s of the accepted classes of the package
+     */
+    public boolean acceptSourceFile(String packageName, String name, Set<String> classSourceFiles) {
+        String path = (packageName != null ? packageName + "/" : "") + name;
+        return !excluded(path) && (included(path) || classSourceFiles.contains(name))
+                && (changedFiles == null || changedFiles.contains(packageName, name));
+    }
+
+    private boolean accept(String name) {
+        String value = name != null ? name : "";
+        return !excluded(value) && included(value);
+    }
+
+    private boolean excluded(String name) {
+        for (Pattern exclude : excludePatterns) {
+            if (exclude.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean included(String name) {
+        if (includePatterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern include : includePatterns) {
+            if (include.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code handler} receiving only what this filter accepts, with recomputed counters
+     */
+    public JacocoReader.Handler filter(JacocoReader.Handler handler) {
+        if (isEmpty()) {
+            return handler;
+        }
+        return new JacocoReader.Handler() {
+            private final Jacoco.CounterTable counters = new Jacoco.CounterTable();
+            private final Set<String> classSourceFiles = new HashSet<>();
+            private String packageName;
+
+            @Override
+            public void startReport(Jacoco.Report report) {
+                handler.startReport(report);
+            }
+
+            @Override
+            public boolean acceptPackage(String name) {
+                return CoverageFilter.this.acceptPackage(name) && handler.acceptPackage(name);
+            }
+
+            @Override
+            public boolean acceptClass(String packageName, String name, String sourcefilename) {
+                boolean accepted = CoverageFilter.this.acceptClass(packageName, name, sourcefilename)
+                        && handler.acceptClass(packageName, name, sourcefilename);
+                if (accepted && sourcefilename != null) {
+                    classSourceFiles(packageName).add(sourcefilename);
+                }
+                return accepted;
+            }
+
+            @Override
+            public boolean acceptSourceFile(String packageName, String name) {
+                return CoverageFilter.this.acceptSourceFile(packageName, name, classSourceFiles(packageName))
+                        && handler.acceptSourceFile(packageName, name);
+            }
+
+            /**
+             * @return the source files of the classes accepted so far in the package being read
+             */
+            private Set<String> classSourceFiles(String packageName) {
+                if (!Objects.equals(packageName, this.packageName)) {
+                    this.packageName = packageName;
+                    classSourceFiles.clear();
+                }
+                return classSourceFiles;
+            }
+
+            @Override
+            public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                if (recount(packageElement)) {
+                    counters.accumulate(packageElement.getCounterTable());
+                    handler.packageElement(group, packageElement);
+                }
+            }
+
+            @Override
+            public void endReport(Jacoco.Report report) {
+                report.getCounterTable().clear();
+                report.getCounterTable().accumulate(counters);
+                handler.endReport(report);
+            }
+        };
+    }
+
+    /**
+     * Removes what this filter does not accept from a report which was read as a whole.
+     */
+    public void apply(Jacoco.Report report) {
+        if (isEmpty()) {
+            return;
+        }
+        report.getCounterTable().clear();
+        apply(report, report.getPackages());
+        for (Jacoco.Group group : report.getGroups()) {
+            apply(report, group.getPackages());
+        }
+        report.getGroups().removeIf(group -> group.getPackages().isEmpty());
+    }
+
+    private void apply(Jacoco.Report report, List<Jacoco.PackageElement> packages) {
+        packages.removeIf(packageElement -> !acceptPackage(packageElement.getName()));
+        for (Jacoco.PackageElement packageElement : packages) {
+            packageElement.getClasses().removeIf(classElement -> !acceptClass(packageElement.getName(),
+                    classElement.getName(), classElement.getSourcefilename()));
+            Set<String> classSourceFiles = new HashSet<>();
+            for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+                if (classElement.getSourcefilename() != null) {
+                    classSourceFiles.add(classElement.getSourcefilename());
+                }
+            }
+            packageElement.getSourceFiles().removeIf(sourceFile -> !acceptSourceFile(packageElement.getName(),
+                    sourceFile.getName(), classSourceFiles));
+        }
+        packages.removeIf(packageElement -> !recount(packageElement));
+        packages.forEach(packageElement -> report.getCounterTable().accumulate(packageElement.getCounterTable()));
+    }
+
+    /**
+     * Recomputes the counters of a package from its classes.
+     *
+     * @return {@code false} when nothing of the package is left
+     */
+    private static boolean recount(Jacoco.PackageElement packageElement) {
+        if (packageElement.getClasses().isEmpty() && packageElement.getSourceFiles().isEmpty()) {
+            return false;
+        }
+        Jacoco.CounterTable counters = packageElement.getCounterTable();
+        counters.clear();
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            counters.accumulate(classElement.getCounterTable());
+        }
+        return true;
+    }
+
+    private static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                    // `**/` also matches no directory at all
+                    i++;
+                    regex.append("(?:.*/)?");
+                } else {
+                    regex.append(".*");
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public String toString() {
+        return "includes=" + includes + ", excludes=" + excludes
+                + (changedFiles != null ? ", changedFiles=" + changedFiles.getFile() : "");
+    }
+}
@@ -0,0 +1,154 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.tools.ExecFileLoader;
+
+/**
+ * Reads JaCoCo execution data ({@code jacoco.exec}) together with the classes it was recorded for, without the
+ * detour through the XML report.
+ * <p>
+ * The classes are analyzed by the JaCoCo core analyzer and the resulting coverage tree is handed to a
+ * {@link JacocoReader.Handler} package by package, holding the same data {@code jacoco:report} would have written.
+ * Execution data of several files is merged the way JaCoCo merges it. Packages, classes and source files keep the
+ * order of the JaCoCo bundle, the order {@code jacoco:report} writes them in, since the lines of methods sharing a
+ * name depend on it (see {@link Cobertura.LineIndex}).
+ */
+class ExecutionDataReader {
+
+    private static final String REPORT_NAME = "JaCoCo";
+
+    /**
+     * @param classDirectories directories of class files, jar files or single class files
+     */
+    public static void read(List<File> execFiles, List<File> classDirectories, JacocoReader.Handler handler)
+            throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        for (File execFile : execFiles) {
+            loader.load(execFile);
+        }
+        CoverageBuilder builder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), builder);
+        for (File classDirectory : classDirectories) {
+            analyzer.analyzeAll(classDirectory);
+        }
+        IBundleCoverage bundle = builder.getBundle(REPORT_NAME);
+
+        Jacoco.Report report = new Jacoco.Report();
+        report.setName(bundle.getName());
+        for (SessionInfo info : loader.getSessionInfoStore().getInfos()) {
+            Jacoco.SessionInfo sessionInfo = new Jacoco.SessionInfo();
+            sessionInfo.setId(info.getId());
+            sessionInfo.setStart(String.valueOf(info.getStartTimeStamp()));
+            sessionInfo.setDump(String.valueOf(info.getDumpTimeStamp()));
+            report.getSessionInfos().add(sessionInfo);
+        }
+        handler.startReport(report);
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            if (handler.acceptPackage(packageCoverage.getName())) {
+                handler.packageElement(null, packageElement(packageCoverage, handler));
+            }
+        }
+        addCounters(bundle, report.getCounterTable());
+        handler.endReport(report);
+    }
+
+    /**
+     * @return the class and jar files analyzed for {@code classDirectories}, sorted by path
+     */
+    public static List<File> classFiles(List<File> classDirectories) throws IOException {
+        List<File> classFiles = new ArrayList<>();
+        for (File classDirectory : classDirectories) {
+            try (Stream<Path> paths = Files.walk(classDirectory.toPath())) {
+                classFiles.addAll(paths.filter(Files::isRegularFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList()));
+            }
+        }
+        return classFiles;
+    }
+
+    private static Jacoco.PackageElement packageElement(IPackageCoverage packageCoverage,
+            JacocoReader.Handler handler) {
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        packageElement.setName(packageCoverage.getName());
+        for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+            if (handler.acceptClass(packageCoverage.getName(), classCoverage.getName(),
+                    classCoverage.getSourceFileName())) {
+                packageElement.getClasses().add(classElement(classCoverage));
+            }
+        }
+        for (ISourceFileCoverage sourceFileCoverage : packageCoverage.getSourceFiles()) {
+            if (handler.acceptSourceFile(packageCoverage.getName(), sourceFileCoverage.getName())) {
+                packageElement.getSourceFiles().add(sourceFile(sourceFileCoverage));
+            }
+        }
+        addCounters(packageCoverage, packageElement.getCounterTable());
+        return packageElement;
+    }
+
+    private static Jacoco.ClassElement classElement(IClassCoverage classCoverage) {
+        Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+        classElement.setName(classCoverage.getName());
+        classElement.setSourcefilename(classCoverage.getSourceFileName());
+        for (IMethodCoverage methodCoverage : classCoverage.getMethods()) {
+            Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+            methodElement.setName(methodCoverage.getName());
+            methodElement.setDesc(methodCoverage.getDesc());
+            int line = methodCoverage.getFirstLine();
+            methodElement.setLine(line != ISourceFileCoverage.UNKNOWN_LINE ? line : null);
+            addCounters(methodCoverage, methodElement.getCounterTable());
+            classElement.getMethods().add(methodElement);
+        }
+        addCounters(classCoverage, classElement.getCounterTable());
+        return classElement;
+    }
+
+    private static Jacoco.SourceFile sourceFile(ISourceFileCoverage sourceFileCoverage) {
+        Jacoco.SourceFile sourceFile = new Jacoco.SourceFile();
+        sourceFile.setName(sourceFileCoverage.getName());
+        Jacoco.LineTable lines = sourceFile.getLineTable();
+        for (int nr = sourceFileCoverage.getFirstLine(); nr <= sourceFileCoverage.getLastLine(); nr++) {
+            ILine line = sourceFileCoverage.getLine(nr);
+            if (line.getStatus() != ICounter.EMPTY) {
+                ICounter instructions = line.getInstructionCounter();
+                ICounter branches = line.getBranchCounter();
+                lines.add(nr, instructions.getMissedCount(), instructions.getCoveredCount(),
+                        branches.getMissedCount(), branches.getCoveredCount());
+            }
+        }
+        lines.trim();
+        addCounters(sourceFileCoverage, sourceFile.getCounterTable());
+        return sourceFile;
+    }
+
+    private static void addCounters(ICoverageNode node, Jacoco.CounterTable counters) {
+        // like the XML report, counters without any items are left out
+        for (ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity.values()) {
+            ICounter counter = node.getCounter(entity);
+            if (counter.getTotalCount() > 0) {
+                counters.add(Jacoco.CounterType.of(entity.name()), counter.getMissedCount(),
+                        counter.getCoveredCount());
+            }
+        }
+    }
+}
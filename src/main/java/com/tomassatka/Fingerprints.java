@@ -0,0 +1,200 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of a conversion, stored next to the output file to skip conversions whose input and configuration
+ * did not change. Safe to use from several threads.
+ */
+class Fingerprints {
+
+    static final String VERSION = "version";
+    static final String CONFIGURATION = "configuration";
+    static final String INPUT = "input";
+    static final String SHARDS = "shards";
+    private static final String PACKAGE_PREFIX = "package.";
+
+    private final Properties properties = new Properties();
+
+    /**
+     * @return the stored fingerprints or empty ones when there are none or they cannot be read
+     */
+    public static Fingerprints load(File file) {
+        Fingerprints fingerprints = new Fingerprints();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                fingerprints.properties.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                fingerprints.properties.clear();
+            }
+        }
+        return fingerprints;
+    }
+
+    public void store(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "jacoco-to-cobertura-maven-plugin fingerprints, do not edit");
+        }
+    }
+
+    public String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    public void put(String key, String value) {
+        properties.setProperty(key, value != null ? value : "");
+    }
+
+    /**
+     * @return whether both fingerprints have the same, present values for all {@code keys}
+     */
+    public boolean matches(Fingerprints other, String... keys) {
+        for (String key : keys) {
+            String value = get(key);
+            if (value == null || !value.equals(other.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getPackage(String packageName) {
+        return get(PACKAGE_PREFIX + packageName);
+    }
+
+    public void putPackage(String packageName, String fingerprint) {
+        put(PACKAGE_PREFIX + packageName, fingerprint);
+    }
+
+    public Set<String> packageNames() {
+        Set<String> packageNames = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(PACKAGE_PREFIX)) {
+                packageNames.add(key.substring(PACKAGE_PREFIX.length()));
+            }
+        }
+        return packageNames;
+    }
+
+    public static String hashFile(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Hashes the contents of all files in their order, so reordered inputs count as changed.
+     */
+    public static String hashFiles(List<File> files) throws IOException {
+        if (files.size() == 1) {
+            return hashFile(files.get(0));
+        }
+        PackageDigest digest = new PackageDigest();
+        for (File file : files) {
+            digest.update(hashFile(file));
+        }
+        return hex(digest.digest.digest());
+    }
+
+    /**
+     * Hashes everything of the package which ends up in its Cobertura report, {@code prefix} carries what the
+     * report depends on besides the package.
+     */
+    public static String hashPackage(String prefix, Jacoco.PackageElement packageElement) {
+        PackageDigest digest = new PackageDigest();
+        digest.update(prefix);
+        digest.update(packageElement.getName());
+        digest.update(packageElement);
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            digest.update(classElement.getName());
+            digest.update(classElement.getSourcefilename());
+            digest.update(classElement);
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                digest.update(methodElement.getName());
+                digest.update(methodElement.getDesc());
+                digest.update(methodElement.getLine() != null ? methodElement.getLine() : -1);
+                digest.update(methodElement);
+            }
+        }
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            digest.update(sourceFile.getName());
+            digest.update(sourceFile);
+            Jacoco.LineTable lines = sourceFile.getLineTable();
+            digest.update(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                digest.update(lines.getNr(i));
+                digest.update(lines.getMi(i));
+                digest.update(lines.getCi(i));
+                digest.update(lines.getMb(i));
+                digest.update(lines.getCb(i));
+            }
+        }
+        return hex(digest.digest.digest());
+    }
+
+    private static class PackageDigest {
+        private final MessageDigest digest = newDigest();
+        private final byte[] buffer = new byte[4];
+
+        void update(int value) {
+            buffer[0] = (byte) (value >>> 24);
+            buffer[1] = (byte) (value >>> 16);
+            buffer[2] = (byte) (value >>> 8);
+            buffer[3] = (byte) value;
+            digest.update(buffer);
+        }
+
+        void update(String value) {
+            if (value == null) {
+                update(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                update(bytes.length);
+                digest.update(bytes);
+            }
+        }
+
+        void update(Jacoco.Counters counters) {
+            Jacoco.CounterTable table = counters.getCounterTable();
+            for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+                update(table.has(type) ? 1 : 0);
+                update(table.getMissed(type));
+                update(table.getCovered(type));
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
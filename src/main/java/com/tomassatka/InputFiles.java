@@ -0,0 +1,101 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the configured JaCoCo reports and execution data, entries of lists may be glob patterns.
+ */
+class InputFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * @return the input files in configuration order without duplicates, the matches of a pattern sorted by path;
+     *         files which are configured explicitly are returned even if they do not exist
+     */
+    public static List<File> resolve(File baseDirectory, File inputFile, List<String> inputFiles)
+            throws JacocoToCoberturaException, IOException {
+        if (inputFile == null && (inputFiles == null || inputFiles.isEmpty())) {
+            throw new JacocoToCoberturaException("Neither `inputFile`, `inputFiles` nor `execFiles` is configured");
+        }
+        Set<File> resolved = new LinkedHashSet<>();
+        if (inputFile != null) {
+            resolved.add(normalize(inputFile));
+        }
+        if (inputFiles != null) {
+            resolved.addAll(resolve(baseDirectory, inputFiles));
+        }
+        return new ArrayList<>(resolved);
+    }
+
+    /**
+     * @return the files in configuration order without duplicates, the matches of a pattern sorted by path; paths
+     *         without glob characters are returned even if they do not exist, patterns only match regular files
+     */
+    public static List<File> resolve(File baseDirectory, List<String> patterns) throws IOException {
+        File base = baseDirectory != null ? baseDirectory : new File("").getAbsoluteFile();
+
+        Set<File> resolved = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (isGlob(pattern)) {
+                resolved.addAll(match(base, pattern));
+            } else {
+                resolved.add(normalize(absolute(base, pattern)));
+            }
+        }
+        return new ArrayList<>(resolved);
+    }
+
+    private static List<File> match(File base, String pattern) throws IOException {
+        // the directories in front of the first glob character are walked, the rest is matched
+        String[] segments = pattern.replace('\\', '/').split("/");
+        StringBuilder root = new StringBuilder(pattern.startsWith("/") ? "/" : "");
+        int i = 0;
+        while (i < segments.length - 1 && !isGlob(segments[i])) {
+            root.append(segments[i]).append('/');
+            i++;
+        }
+        String glob = String.join("/", List.of(segments).subList(i, segments.length));
+
+        Path rootPath = absolute(base, root.length() > 0 ? root.toString() : ".").toPath().normalize();
+        if (!Files.isDirectory(rootPath)) {
+            return List.of();
+        }
+        PathMatcher matcher = rootPath.getFileSystem().getPathMatcher("glob:" + glob);
+        try (Stream<Path> paths = Files.walk(rootPath)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(rootPath.relativize(path)))
+                    .sorted()
+                    .map(path -> normalize(path.toFile()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static File absolute(File base, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+
+    private static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    private static boolean isGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,62 +3,162 @@ package com.tomassatka;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.ElementList;
 import org.simpleframework.xml.Root;
+import org.simpleframework.xml.core.Commit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
-import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 public class Jacoco {
 
     interface Counters {
-        List<Counter> getCounters();
+        CounterTable getCounterTable();
 
         default double branchRate() {
-            return counter("BRANCH", getCounters());
+            return getCounterTable().rate(CounterType.BRANCH);
         }
 
         default double lineRate() {
-            return counter("LINE", getCounters());
+            return getCounterTable().rate(CounterType.LINE);
         }
 
         default double complexity() {
-            return counter("COMPLEXITY", getCounters(), Counters::sum);
+            return getCounterTable().total(CounterType.COMPLEXITY);
         }
 
-        static double counter(String type, List<Counter> counters) {
-            return counter(type, counters, Counters::fraction);
+        static double fraction(int s1, int s2) {
+            if (s1 != 0 || s2 != 0) {
+                return (double) s1 / (s1 + s2);
+            } else {
+                return 0.0;
+            }
         }
+    }
 
-        static double counter(String type, List<Counter> counters, BiFunction<Integer, Integer, Double> op) {
-            Optional<Counter> optionalCounter = counters.stream()
-                    .filter(counter -> counter.getType().equals(type))
-                    .findFirst();
+    enum CounterType {
+        INSTRUCTION, BRANCH, LINE, COMPLEXITY, METHOD, CLASS;
 
-            if (optionalCounter.isPresent()) {
-                Counter counter = optionalCounter.get();
-                return op.apply(counter.getCovered(), counter.getMissed());
-            } else {
-                return 0.0;
+        private static final CounterType[] VALUES = values();
+
+        /**
+         * @return the counter type or {@code null} when JaCoCo reports a type unknown to this plugin
+         */
+        public static CounterType of(String type) {
+            if (type != null) {
+                for (CounterType counterType : VALUES) {
+                    if (counterType.name().equals(type)) {
+                        return counterType;
+                    }
+                }
             }
+            return null;
         }
+    }
 
-        static double sum(int s1, int s2) {
-            return (double) (s1 + s2);
+    /**
+     * Missed and covered counts of every {@link CounterType}, a missing counter reads as zero.
+     */
+    static class CounterTable {
+        private final int[] values = new int[2 * CounterType.VALUES.length];
+        private int present;
+
+        /**
+         * Adds a counter, only the first counter of a type counts.
+         */
+        public void add(CounterType type, int missed, int covered) {
+            if (type == null || has(type)) {
+                return;
+            }
+            present |= 1 << type.ordinal();
+            values[2 * type.ordinal()] = missed;
+            values[2 * type.ordinal() + 1] = covered;
         }
 
-        static double fraction(int s1, int s2) {
-            if (s1 != 0 || s2 != 0) {
-                return (double) s1 / (s1 + s2);
-            } else {
-                return 0.0;
+        /**
+         * Replaces the counter of a type.
+         */
+        public void set(CounterType type, int missed, int covered) {
+            present |= 1 << type.ordinal();
+            values[2 * type.ordinal()] = missed;
+            values[2 * type.ordinal() + 1] = covered;
+        }
+
+        public void clear() {
+            present = 0;
+            Arrays.fill(values, 0);
+        }
+
+        /**
+         * Adds the counts of {@code other} to the counts of this table.
+         */
+        public void accumulate(CounterTable other) {
+            present |= other.present;
+            for (int i = 0; i < values.length; i++) {
+                values[i] += other.values[i];
+            }
+        }
+
+        public boolean has(CounterType type) {
+            return (present & (1 << type.ordinal())) != 0;
+        }
+
+        public int getMissed(CounterType type) {
+            return values[2 * type.ordinal()];
+        }
+
+        public int getCovered(CounterType type) {
+            return values[2 * type.ordinal() + 1];
+        }
+
+        /**
+         * Covered share of the counter, {@code 0.0} when it is missing or empty.
+         */
+        public double rate(CounterType type) {
+            return Counters.fraction(getCovered(type), getMissed(type));
+        }
+
+        /**
+         * Sum of missed and covered.
+         */
+        public double total(CounterType type) {
+            return getCovered(type) + getMissed(type);
+        }
+    }
+
+    /**
+     * Element with {@code <counter>} children, Simple XML reads them into a list which is moved into the counter
+     * table once the element is complete.
+     */
+    abstract static class CounterElement implements Counters {
+        @ElementList(name = "counter", required = false, inline = true)
+        private List<Counter> counters = new ArrayList<>();
+
+        private final CounterTable counterTable = new CounterTable();
+
+        @Commit
+        private void commitCounters() {
+            for (Counter counter : counters) {
+                counterTable.add(CounterType.of(counter.getType()), counter.getMissed(), counter.getCovered());
             }
+            counters = new ArrayList<>();
+            commit();
+        }
+
+        /**
+         * Called by Simple XML once the element is read.
+         */
+        protected void commit() {
+        }
+
+        @Override
+        public CounterTable getCounterTable() {
+            return counterTable;
         }
     }
 
     @Root(strict = false, name = "report")
-    static class Report implements Counters {
+    static class Report extends CounterElement {
         @Attribute(name = "name")
         private String name;
 
@@ -71,9 +171,6 @@ public class Jacoco {
         @ElementList(name = "sessioninfo", required = false, inline = true)
         private List<SessionInfo> sessionInfos = new ArrayList<>();
 
-        @ElementList(name = "counter", required = false, inline = true)
-        private List<Counter> counters = new ArrayList<>();
-
         public long timestamp() {
             return sessionInfos.isEmpty() ? 0 : Long.parseLong(sessionInfos.get(0).getStart()) / 1000;
         }
@@ -145,11 +242,6 @@ public class Jacoco {
             return sourceList;
         }
 
-        @Override
-        public List<Counter> getCounters() {
-            return counters;
-        }
-
         public void print() {
             System.out.println(name);
             System.out.println(sessionInfos.stream().map(SessionInfo::getId).collect(Collectors.joining(", ")));
@@ -161,32 +253,31 @@ public class Jacoco {
                     classElement.getMethods().forEach(methodElement -> {
                         System.out.println("         " + methodElement.getName() + " - " + methodElement.getDesc()
                                 + " - " + methodElement.getLine());
-                        methodElement.getCounters().forEach(counter -> {
-                            System.out.println("               " + counter.getType() + " - " + counter.getMissed()
-                                    + " - " + counter.getCovered());
-                        });
+                        printCounters("               ", methodElement);
                     });
                 });
                 packageElement.getSourceFiles().forEach(sourceFile -> {
                     System.out.println("       sourcefile: " + sourceFile.getName());
-                    sourceFile.getLines().forEach(line -> {
+                    LineTable lines = sourceFile.getLineTable();
+                    for (int i = 0; i < lines.size(); i++) {
                         System.out.println(
-                                "         line: " + line.getMi() + " - " + line.getCi() + " - " + line.getCb());
-                    });
-                    sourceFile.getCounters().forEach(counter -> {
-                        System.out.println("         counter: " + counter.getType() + " - " + counter.getMissed()
-                                + " - " + counter.getCovered());
-                    });
-                });
-                packageElement.getCounters().forEach(counter -> {
-                    System.out.println("   counter: " + counter.getType() + " - " + counter.getMissed() + " - "
-                            + counter.getCovered());
+                                "         line: " + lines.getMi(i) + " - " + lines.getCi(i) + " - " + lines.getCb(i));
+                    }
+                    printCounters("         counter: ", sourceFile);
                 });
+                printCounters("   counter: ", packageElement);
             });
-            counters.forEach(counter -> {
-                System.out.println(
-                        "counter: " + counter.getType() + " - " + counter.getMissed() + " - " + counter.getCovered());
-            });
+            printCounters("counter: ", this);
+        }
+
+        private static void printCounters(String prefix, Counters element) {
+            CounterTable counters = element.getCounterTable();
+            for (CounterType type : CounterType.values()) {
+                if (counters.has(type)) {
+                    System.out.println(prefix + type + " - " + counters.getMissed(type) + " - "
+                            + counters.getCovered(type));
+                }
+            }
         }
 
     }
@@ -217,7 +308,7 @@ public class Jacoco {
     }
 
     @Root(name = "package", strict = false)
-    static class PackageElement implements Counters {
+    static class PackageElement extends CounterElement {
         @Attribute(name = "name", required = false)
         private String name;
 
@@ -227,9 +318,6 @@ public class Jacoco {
         @ElementList(name = "sourcefile", required = false, inline = true)
         private List<SourceFile> sourcefiles = new ArrayList<>();
 
-        @ElementList(name = "counter", required = false, inline = true)
-        private List<Counter> counters = new ArrayList<>();
-
         public String getName() {
             return name;
         }
@@ -242,34 +330,155 @@ public class Jacoco {
             return classes;
         }
 
-        @Override
-        public List<Counter> getCounters() {
-            return counters;
+        public void setName(String name) {
+            this.name = name;
         }
     }
 
     @Root(name = "sourcefile", strict = false)
-    static class SourceFile implements Counters {
+    static class SourceFile extends CounterElement {
         @Attribute(name = "name", required = false)
         private String name;
 
+        // only used by Simple XML, moved into the line table once the element is read
         @ElementList(name = "line", required = false, inline = true)
         private List<Line> lines = new ArrayList<>();
 
-        @ElementList(name = "counter", required = false, inline = true)
-        private List<Counter> counters = new ArrayList<>();
+        private LineTable lineTable = new LineTable();
+
+        @Override
+        protected void commit() {
+            lineTable = new LineTable(lines.size());
+            for (Line line : lines) {
+                lineTable.add(line.getNr(), line.getMi(), line.getCi(), line.getMb(), line.getCb());
+            }
+            lines = new ArrayList<>();
+        }
 
         public String getName() {
             return name;
         }
 
-        public List<Line> getLines() {
-            return lines;
+        public LineTable getLineTable() {
+            return lineTable;
         }
 
-        @Override
-        public List<Counter> getCounters() {
-            return counters;
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Lines of a source file stored column by column in primitive arrays, a table can also be a view on a range of
+     * another table.
+     */
+    static class LineTable {
+        private int[] nr;
+        private int[] mi;
+        private int[] ci;
+        private int[] mb;
+        private int[] cb;
+        private final int offset;
+        private int size;
+        private final boolean slice;
+
+        public LineTable() {
+            this(16);
+        }
+
+        public LineTable(int capacity) {
+            this.nr = new int[capacity];
+            this.mi = new int[capacity];
+            this.ci = new int[capacity];
+            this.mb = new int[capacity];
+            this.cb = new int[capacity];
+            this.offset = 0;
+            this.slice = false;
+        }
+
+        private LineTable(LineTable table, int from, int to) {
+            this.nr = table.nr;
+            this.mi = table.mi;
+            this.ci = table.ci;
+            this.mb = table.mb;
+            this.cb = table.cb;
+            this.offset = table.offset + from;
+            this.size = to - from;
+            this.slice = true;
+        }
+
+        public void add(int nr, int mi, int ci, int mb, int cb) {
+            if (slice) {
+                throw new UnsupportedOperationException("Slices of a line table are read only");
+            }
+            if (size == this.nr.length) {
+                resize(Math.max(16, this.nr.length * 2));
+            }
+            int i = size++;
+            this.nr[i] = nr;
+            this.mi[i] = mi;
+            this.ci[i] = ci;
+            this.mb[i] = mb;
+            this.cb[i] = cb;
+        }
+
+        /**
+         * Appends the row {@code i} of {@code table}.
+         */
+        public void add(LineTable table, int i) {
+            add(table.getNr(i), table.getMi(i), table.getCi(i), table.getMb(i), table.getCb(i));
+        }
+
+        /**
+         * Releases the spare capacity left by growing the table while parsing.
+         */
+        public void trim() {
+            if (!slice && size < nr.length) {
+                resize(size);
+            }
+        }
+
+        /**
+         * Rows {@code from} inclusive to {@code to} exclusive, sharing the arrays of this table.
+         */
+        public LineTable slice(int from, int to) {
+            return new LineTable(this, from, to);
+        }
+
+        private void resize(int capacity) {
+            nr = Arrays.copyOf(nr, capacity);
+            mi = Arrays.copyOf(mi, capacity);
+            ci = Arrays.copyOf(ci, capacity);
+            mb = Arrays.copyOf(mb, capacity);
+            cb = Arrays.copyOf(cb, capacity);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int getNr(int i) {
+            return nr[offset + i];
+        }
+
+        public int getMi(int i) {
+            return mi[offset + i];
+        }
+
+        public int getCi(int i) {
+            return ci[offset + i];
+        }
+
+        public int getMb(int i) {
+            return mb[offset + i];
+        }
+
+        public int getCb(int i) {
+            return cb[offset + i];
         }
     }
 
@@ -312,7 +521,7 @@ public class Jacoco {
     }
 
     @Root(name = "class", strict = false)
-    static class ClassElement implements Counters {
+    static class ClassElement extends CounterElement {
         @Attribute(name = "name", required = false)
         private String name;
 
@@ -322,9 +531,6 @@ public class Jacoco {
         @ElementList(name = "method", required = false, inline = true)
         private List<MethodElement> methods = new ArrayList<>();
 
-        @ElementList(name = "counter", required = false, inline = true)
-        private List<Counter> counters = new ArrayList<>();
-
         public String getName() {
             return name;
         }
@@ -337,15 +543,18 @@ public class Jacoco {
             return sourcefilename;
         }
 
-        @Override
-        public List<Counter> getCounters() {
-            return counters;
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setSourcefilename(String sourcefilename) {
+            this.sourcefilename = sourcefilename;
         }
 
     }
 
     @Root(name = "method", strict = false)
-    static class MethodElement implements Counters {
+    static class MethodElement extends CounterElement {
         @Attribute(name = "name", required = false)
         private String name;
 
@@ -355,9 +564,6 @@ public class Jacoco {
         @Attribute(name = "line", required = false)
         private Integer line;
 
-        @ElementList(name = "counter", required = false, inline = true)
-        private List<Counter> counters = new ArrayList<>();
-
         public String getName() {
             return name;
         }
@@ -370,9 +576,16 @@ public class Jacoco {
             return line;
         }
 
-        @Override
-        public List<Counter> getCounters() {
-            return counters;
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setDesc(String desc) {
+            this.desc = desc;
+        }
+
+        public void setLine(Integer line) {
+            this.line = line;
         }
     }
 
@@ -422,5 +635,17 @@ public class Jacoco {
         public String getDump() {
             return dump;
         }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public void setStart(String start) {
+            this.start = start;
+        }
+
+        public void setDump(String dump) {
+            this.dump = dump;
+        }
     }
 }
@@ -0,0 +1,408 @@
+package com.tomassatka;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull based (StAX) reader for JaCoCo XML reports.
+ * <p>
+ * Instead of materializing the whole {@link Jacoco.Report} the reader hands every {@code <package>} to a
+ * {@link Handler} as soon as its end tag has been read, so the caller decides what is kept on the heap.
+ */
+class JacocoReader {
+
+    /**
+     * Receives the parts of a report in document order.
+     */
+    interface Handler {
+        /**
+         * Called once before the first group or package, the report carries its name and session infos.
+         */
+        default void startReport(Jacoco.Report report) {
+        }
+
+        /**
+         * Called before a package is read, a package which is not accepted is skipped without being materialized.
+         */
+        default boolean acceptPackage(String name) {
+            return true;
+        }
+
+        /**
+         * Called before a class of an accepted package is read, a class which is not accepted is skipped.
+         * {@code sourcefilename} is {@code null} for classes without debug information.
+         */
+        default boolean acceptClass(String packageName, String name, String sourcefilename) {
+            return true;
+        }
+
+        /**
+         * Called before a source file of an accepted package is read, a source file which is not accepted is
+         * skipped.
+         */
+        default boolean acceptSourceFile(String packageName, String name) {
+            return true;
+        }
+
+        /**
+         * Called for every package, {@code group} is the enclosing group or {@code null} for top level packages.
+         */
+        void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement);
+
+        /**
+         * Called once after the last package, the report now carries its counters as well.
+         */
+        default void endReport(Jacoco.Report report) {
+        }
+    }
+
+    /**
+     * Reads a report file into a {@link Handler}, implemented by every streaming parser.
+     */
+    interface Engine {
+        void read(File inputFile, Handler handler) throws IOException, XMLStreamException;
+    }
+
+    static final XMLInputFactory FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        // the JDK implementation, simple-xml drags an outdated StAX provider onto the classpath
+        XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+        // JaCoCo declares `report.dtd` which is never shipped next to the report
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Collects the whole report into memory, groups and packages included.
+     */
+    static class Collector implements Handler {
+        private Jacoco.Report report;
+        private Jacoco.Group currentGroup;
+
+        @Override
+        public void startReport(Jacoco.Report report) {
+            this.report = report;
+        }
+
+        @Override
+        public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+            if (group == null) {
+                report.getPackages().add(packageElement);
+            } else {
+                if (group != currentGroup) {
+                    report.getGroups().add(group);
+                    currentGroup = group;
+                }
+                group.getPackages().add(packageElement);
+            }
+        }
+
+        public Jacoco.Report getReport() {
+            return report;
+        }
+    }
+
+    /**
+     * Reads the whole report into memory, groups and packages included.
+     */
+    public static Jacoco.Report read(File inputFile) throws IOException, XMLStreamException {
+        Collector collector = new Collector();
+        read(inputFile, collector);
+        return collector.getReport();
+    }
+
+    public static void read(File inputFile, Handler handler) throws IOException, XMLStreamException {
+        try (InputStream in = open(inputFile)) {
+            read(in, handler);
+        }
+    }
+
+    /**
+     * Opens a report for reading, gzip compressed reports are decompressed while they are read.
+     */
+    public static InputStream open(File inputFile) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(inputFile), 1 << 16);
+        try {
+            in.mark(2);
+            int magic = in.read() | in.read() << 8;
+            in.reset();
+            return magic == GZIPInputStream.GZIP_MAGIC ? new BufferedInputStream(new GZIPInputStream(in, 1 << 16),
+                    1 << 16) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static void read(InputStream in, Handler handler) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (!"report".equals(reader.getLocalName())) {
+                        throw new XMLStreamException("Unexpected root element `" + reader.getLocalName() + "`",
+                                reader.getLocation());
+                    }
+                    new JacocoReader(reader, handler).readReport();
+                    return;
+                }
+            }
+            throw new XMLStreamException("Missing root element `report`");
+        } finally {
+            reader.close();
+        }
+    }
+
+    private final XMLStreamReader reader;
+    private final Handler handler;
+    private Jacoco.Report report;
+    private boolean started;
+
+    private JacocoReader(XMLStreamReader reader, Handler handler) {
+        this.reader = reader;
+        this.handler = handler;
+    }
+
+    private void readReport() throws XMLStreamException {
+        report = new Jacoco.Report();
+        report.setName(reader.getAttributeValue(null, "name"));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case "sessioninfo":
+                report.getSessionInfos().add(readSessionInfo());
+                break;
+            case "group":
+                start();
+                readGroup();
+                break;
+            case "package":
+                start();
+                readPackage(null);
+                break;
+            case "counter":
+                start();
+                readCounter(report.getCounterTable());
+                break;
+            default:
+                skipElement();
+            }
+        }
+        start();
+        handler.endReport(report);
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            handler.startReport(report);
+        }
+    }
+
+    private void readGroup() throws XMLStreamException {
+        // nested groups are flattened, every package is reported with its innermost group
+        Jacoco.Group group = new Jacoco.Group();
+        group.setName(reader.getAttributeValue(null, "name"));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case "group":
+                readGroup();
+                break;
+            case "package":
+                readPackage(group);
+                break;
+            default:
+                skipElement();
+            }
+        }
+    }
+
+    private void readPackage(Jacoco.Group group) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        if (!handler.acceptPackage(name)) {
+            skipElement();
+            return;
+        }
+
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        packageElement.setName(name);
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case "class":
+                if (handler.acceptClass(name, reader.getAttributeValue(null, "name"),
+                        reader.getAttributeValue(null, "sourcefilename"))) {
+                    packageElement.getClasses().add(readClass());
+                } else {
+                    skipElement();
+                }
+                break;
+            case "sourcefile":
+                if (handler.acceptSourceFile(name, reader.getAttributeValue(null, "name"))) {
+                    packageElement.getSourceFiles().add(readSourceFile());
+                } else {
+                    skipElement();
+                }
+                break;
+            case "counter":
+                readCounter(packageElement.getCounterTable());
+                break;
+            default:
+                skipElement();
+            }
+        }
+        handler.packageElement(group, packageElement);
+    }
+
+    private Jacoco.ClassElement readClass() throws XMLStreamException {
+        Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+        classElement.setName(reader.getAttributeValue(null, "name"));
+        classElement.setSourcefilename(reader.getAttributeValue(null, "sourcefilename"));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case "method":
+                classElement.getMethods().add(readMethod());
+                break;
+            case "counter":
+                readCounter(classElement.getCounterTable());
+                break;
+            default:
+                skipElement();
+            }
+        }
+        return classElement;
+    }
+
+    private Jacoco.MethodElement readMethod() throws XMLStreamException {
+        Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+        methodElement.setName(reader.getAttributeValue(null, "name"));
+        methodElement.setDesc(reader.getAttributeValue(null, "desc"));
+        String line = reader.getAttributeValue(null, "line");
+        methodElement.setLine(line != null ? Integer.valueOf(line) : null);
+
+        readCounters(methodElement.getCounterTable());
+        return methodElement;
+    }
+
+    private Jacoco.SourceFile readSourceFile() throws XMLStreamException {
+        Jacoco.SourceFile sourceFile = new Jacoco.SourceFile();
+        sourceFile.setName(reader.getAttributeValue(null, "name"));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case "line":
+                readLine(sourceFile.getLineTable());
+                break;
+            case "counter":
+                readCounter(sourceFile.getCounterTable());
+                break;
+            default:
+                skipElement();
+            }
+        }
+        sourceFile.getLineTable().trim();
+        return sourceFile;
+    }
+
+    private void readLine(Jacoco.LineTable lines) throws XMLStreamException {
+        int nr = 0;
+        int mi = 0;
+        int ci = 0;
+        int mb = 0;
+        int cb = 0;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (reader.getAttributeLocalName(i)) {
+            case "nr":
+                nr = intAttribute(i);
+                break;
+            case "mi":
+                mi = intAttribute(i);
+                break;
+            case "ci":
+                ci = intAttribute(i);
+                break;
+            case "mb":
+                mb = intAttribute(i);
+                break;
+            case "cb":
+                cb = intAttribute(i);
+                break;
+            default:
+            }
+        }
+        lines.add(nr, mi, ci, mb, cb);
+        skipElement();
+    }
+
+    private void readCounters(Jacoco.CounterTable counters) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("counter".equals(reader.getLocalName())) {
+                readCounter(counters);
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    private void readCounter(Jacoco.CounterTable counters) throws XMLStreamException {
+        counters.add(Jacoco.CounterType.of(reader.getAttributeValue(null, "type")), intAttribute("missed"),
+                intAttribute("covered"));
+        skipElement();
+    }
+
+    private Jacoco.SessionInfo readSessionInfo() throws XMLStreamException {
+        Jacoco.SessionInfo sessionInfo = new Jacoco.SessionInfo();
+        sessionInfo.setId(reader.getAttributeValue(null, "id"));
+        sessionInfo.setStart(reader.getAttributeValue(null, "start"));
+        sessionInfo.setDump(reader.getAttributeValue(null, "dump"));
+        skipElement();
+        return sessionInfo;
+    }
+
+    private int intAttribute(String name) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? parseInt(name, value) : 0;
+    }
+
+    private int intAttribute(int index) throws XMLStreamException {
+        return parseInt(reader.getAttributeLocalName(index), reader.getAttributeValue(index));
+    }
+
+    private int parseInt(String name, String value) throws XMLStreamException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid value `" + value + "` of attribute `" + name + "`",
+                    reader.getLocation(), e);
+        }
+    }
+
+    /**
+     * Skips the rest of the current element, the reader is left on its end tag.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
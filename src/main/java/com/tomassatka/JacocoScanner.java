@@ -0,0 +1,619 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reader for JaCoCo XML reports which memory-maps the report and scans its bytes directly.
+ * <p>
+ * JaCoCo reports use a small, fixed vocabulary, so element and attribute names are recognized by comparing bytes
+ * and integer attributes are parsed straight from the bytes. Only names, descriptors and session infos are decoded
+ * into strings. The scanner handles what JaCoCo writes (no CDATA, no entities besides the predefined and numeric
+ * ones) and reports the same events as {@link JacocoReader}. Gzip compressed reports and reports of 2 GB and more,
+ * which cannot be mapped at once, are read by {@link JacocoReader} instead.
+ */
+class JacocoScanner {
+
+    private static final byte[] REPORT = bytes("report");
+    private static final byte[] SESSIONINFO = bytes("sessioninfo");
+    private static final byte[] GROUP = bytes("group");
+    private static final byte[] PACKAGE = bytes("package");
+    private static final byte[] CLASS = bytes("class");
+    private static final byte[] METHOD = bytes("method");
+    private static final byte[] SOURCEFILE = bytes("sourcefile");
+    private static final byte[] LINE = bytes("line");
+    private static final byte[] COUNTER = bytes("counter");
+
+    private static final byte[] NAME = bytes("name");
+    private static final byte[] DESC = bytes("desc");
+    private static final byte[] SOURCEFILENAME = bytes("sourcefilename");
+    private static final byte[] ID = bytes("id");
+    private static final byte[] START = bytes("start");
+    private static final byte[] DUMP = bytes("dump");
+    private static final byte[] NR = bytes("nr");
+    private static final byte[] MI = bytes("mi");
+    private static final byte[] CI = bytes("ci");
+    private static final byte[] MB = bytes("mb");
+    private static final byte[] CB = bytes("cb");
+    private static final byte[] TYPE = bytes("type");
+    private static final byte[] MISSED = bytes("missed");
+    private static final byte[] COVERED = bytes("covered");
+
+    private static final byte[][] COUNTER_TYPES = new byte[Jacoco.CounterType.values().length][];
+
+    static {
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            COUNTER_TYPES[type.ordinal()] = bytes(type.name());
+        }
+    }
+
+    private static final int MAX_ATTRIBUTES = 16;
+
+    public static void read(File inputFile, JacocoReader.Handler handler) throws IOException, XMLStreamException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= Integer.MAX_VALUE || isGzip(inputFile)) {
+                JacocoReader.read(inputFile, handler);
+                return;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        new JacocoScanner(buffer, handler).readDocument();
+    }
+
+    private static boolean isGzip(File inputFile) throws IOException {
+        try (InputStream in = Files.newInputStream(inputFile.toPath())) {
+            return (in.read() | in.read() << 8) == GZIPInputStream.GZIP_MAGIC;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final JacocoReader.Handler handler;
+    private int position;
+    private Jacoco.Report report;
+    private boolean started;
+
+    // the current tag
+    private boolean endTag;
+    private boolean emptyTag;
+    private int nameStart;
+    private int nameEnd;
+    private int attributeCount;
+    private final int[] attributeNameStart = new int[MAX_ATTRIBUTES];
+    private final int[] attributeNameEnd = new int[MAX_ATTRIBUTES];
+    private final int[] valueStart = new int[MAX_ATTRIBUTES];
+    private final int[] valueEnd = new int[MAX_ATTRIBUTES];
+    private byte[] scratch = new byte[256];
+
+    private JacocoScanner(ByteBuffer buffer, JacocoReader.Handler handler) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.handler = handler;
+    }
+
+    private void readDocument() throws XMLStreamException {
+        if (!nextTag()) {
+            throw new XMLStreamException("Missing root element `report`");
+        }
+        if (endTag || !is(REPORT)) {
+            throw error("Unexpected root element `" + decode(nameStart, nameEnd) + "`");
+        }
+        readReport();
+    }
+
+    private void readReport() throws XMLStreamException {
+        report = new Jacoco.Report();
+        report.setName(string(NAME));
+
+        while (nextChild()) {
+            if (is(SESSIONINFO)) {
+                report.getSessionInfos().add(readSessionInfo());
+            } else if (is(GROUP)) {
+                start();
+                readGroup();
+            } else if (is(PACKAGE)) {
+                start();
+                readPackage(null);
+            } else if (is(COUNTER)) {
+                start();
+                readCounter(report.getCounterTable());
+            } else {
+                skipElement();
+            }
+        }
+        start();
+        handler.endReport(report);
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            handler.startReport(report);
+        }
+    }
+
+    private void readGroup() throws XMLStreamException {
+        // nested groups are flattened, every package is reported with its innermost group
+        Jacoco.Group group = new Jacoco.Group();
+        group.setName(string(NAME));
+
+        while (nextChild()) {
+            if (is(GROUP)) {
+                readGroup();
+            } else if (is(PACKAGE)) {
+                readPackage(group);
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    private void readPackage(Jacoco.Group group) throws XMLStreamException {
+        String name = string(NAME);
+        if (!handler.acceptPackage(name)) {
+            skipElement();
+            return;
+        }
+
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        packageElement.setName(name);
+
+        while (nextChild()) {
+            if (is(CLASS)) {
+                if (handler.acceptClass(name, string(NAME), string(SOURCEFILENAME))) {
+                    packageElement.getClasses().add(readClass());
+                } else {
+                    skipElement();
+                }
+            } else if (is(SOURCEFILE)) {
+                if (handler.acceptSourceFile(name, string(NAME))) {
+                    packageElement.getSourceFiles().add(readSourceFile());
+                } else {
+                    skipElement();
+                }
+            } else if (is(COUNTER)) {
+                readCounter(packageElement.getCounterTable());
+            } else {
+                skipElement();
+            }
+        }
+        handler.packageElement(group, packageElement);
+    }
+
+    private Jacoco.ClassElement readClass() throws XMLStreamException {
+        Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+        classElement.setName(string(NAME));
+        classElement.setSourcefilename(string(SOURCEFILENAME));
+
+        while (nextChild()) {
+            if (is(METHOD)) {
+                classElement.getMethods().add(readMethod());
+            } else if (is(COUNTER)) {
+                readCounter(classElement.getCounterTable());
+            } else {
+                skipElement();
+            }
+        }
+        return classElement;
+    }
+
+    private Jacoco.MethodElement readMethod() throws XMLStreamException {
+        Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+        methodElement.setName(string(NAME));
+        methodElement.setDesc(string(DESC));
+        int line = attribute(LINE);
+        methodElement.setLine(line >= 0 ? parseInt(line) : null);
+
+        while (nextChild()) {
+            if (is(COUNTER)) {
+                readCounter(methodElement.getCounterTable());
+            } else {
+                skipElement();
+            }
+        }
+        return methodElement;
+    }
+
+    private Jacoco.SourceFile readSourceFile() throws XMLStreamException {
+        Jacoco.SourceFile sourceFile = new Jacoco.SourceFile();
+        sourceFile.setName(string(NAME));
+
+        while (nextChild()) {
+            if (is(LINE)) {
+                readLine(sourceFile.getLineTable());
+            } else if (is(COUNTER)) {
+                readCounter(sourceFile.getCounterTable());
+            } else {
+                skipElement();
+            }
+        }
+        sourceFile.getLineTable().trim();
+        return sourceFile;
+    }
+
+    private void readLine(Jacoco.LineTable lines) throws XMLStreamException {
+        int nr = 0;
+        int mi = 0;
+        int ci = 0;
+        int mb = 0;
+        int cb = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeIs(i, NR)) {
+                nr = parseInt(i);
+            } else if (attributeIs(i, MI)) {
+                mi = parseInt(i);
+            } else if (attributeIs(i, CI)) {
+                ci = parseInt(i);
+            } else if (attributeIs(i, MB)) {
+                mb = parseInt(i);
+            } else if (attributeIs(i, CB)) {
+                cb = parseInt(i);
+            }
+        }
+        lines.add(nr, mi, ci, mb, cb);
+        skipElement();
+    }
+
+    private void readCounter(Jacoco.CounterTable counters) throws XMLStreamException {
+        Jacoco.CounterType type = null;
+        int missed = 0;
+        int covered = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeIs(i, TYPE)) {
+                type = counterType(i);
+            } else if (attributeIs(i, MISSED)) {
+                missed = parseInt(i);
+            } else if (attributeIs(i, COVERED)) {
+                covered = parseInt(i);
+            }
+        }
+        counters.add(type, missed, covered);
+        skipElement();
+    }
+
+    private Jacoco.SessionInfo readSessionInfo() throws XMLStreamException {
+        Jacoco.SessionInfo sessionInfo = new Jacoco.SessionInfo();
+        sessionInfo.setId(string(ID));
+        sessionInfo.setStart(string(START));
+        sessionInfo.setDump(string(DUMP));
+        skipElement();
+        return sessionInfo;
+    }
+
+    private Jacoco.CounterType counterType(int attribute) {
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if (equals(valueStart[attribute], valueEnd[attribute], COUNTER_TYPES[type.ordinal()])) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves to the next child of the current element.
+     *
+     * @return {@code false} when the end tag of the current element has been reached instead
+     */
+    private boolean nextChild() throws XMLStreamException {
+        if (emptyTag) {
+            // the element has no children, its end is implied
+            emptyTag = false;
+            return false;
+        }
+        if (!nextTag()) {
+            throw error("Unexpected end of document");
+        }
+        return !endTag;
+    }
+
+    /**
+     * Skips the rest of the current element, the scanner is left on its end.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        if (emptyTag) {
+            emptyTag = false;
+            return;
+        }
+        while (depth > 0) {
+            if (!nextTag()) {
+                throw error("Unexpected end of document");
+            }
+            if (endTag) {
+                depth--;
+            } else if (emptyTag) {
+                emptyTag = false;
+            } else {
+                depth++;
+            }
+        }
+    }
+
+    /**
+     * Scans the next start or end tag, skipping text, comments, processing instructions and the doctype.
+     *
+     * @return {@code false} at the end of the document
+     */
+    private boolean nextTag() throws XMLStreamException {
+        while (true) {
+            while (position < limit && buffer.get(position) != '<') {
+                position++;
+            }
+            if (position >= limit) {
+                return false;
+            }
+            position++;
+            byte next = at(position);
+            if (next == '?') {
+                skipPast((byte) '?', (byte) '>');
+            } else if (next == '!') {
+                if (at(position + 1) == '-' && at(position + 2) == '-') {
+                    skipComment();
+                } else {
+                    skipDeclaration();
+                }
+            } else if (next == '/') {
+                position++;
+                endTag = true;
+                emptyTag = false;
+                nameStart = position;
+                while (at(position) != '>') {
+                    position++;
+                }
+                position++;
+                return true;
+            } else {
+                endTag = false;
+                readStartTag();
+                return true;
+            }
+        }
+    }
+
+    private void readStartTag() throws XMLStreamException {
+        nameStart = position;
+        while (!isNameEnd(at(position))) {
+            position++;
+        }
+        nameEnd = position;
+        attributeCount = 0;
+        emptyTag = false;
+        while (true) {
+            byte b = at(position);
+            if (isWhitespace(b)) {
+                position++;
+            } else if (b == '>') {
+                position++;
+                return;
+            } else if (b == '/') {
+                if (at(position + 1) != '>') {
+                    throw error("Malformed tag `" + decode(nameStart, nameEnd) + "`");
+                }
+                position += 2;
+                emptyTag = true;
+                return;
+            } else {
+                readAttribute();
+            }
+        }
+    }
+
+    private void readAttribute() throws XMLStreamException {
+        if (attributeCount == MAX_ATTRIBUTES) {
+            throw error("Too many attributes in `" + decode(nameStart, nameEnd) + "`");
+        }
+        int i = attributeCount++;
+        attributeNameStart[i] = position;
+        while (!isNameEnd(at(position)) && at(position) != '=') {
+            position++;
+        }
+        attributeNameEnd[i] = position;
+        while (isWhitespace(at(position))) {
+            position++;
+        }
+        if (at(position) != '=') {
+            throw error("Malformed attribute in `" + decode(nameStart, nameEnd) + "`");
+        }
+        position++;
+        while (isWhitespace(at(position))) {
+            position++;
+        }
+        byte quote = at(position);
+        if (quote != '"' && quote != '\'') {
+            throw error("Malformed attribute in `" + decode(nameStart, nameEnd) + "`");
+        }
+        valueStart[i] = ++position;
+        while (at(position) != quote) {
+            position++;
+        }
+        valueEnd[i] = position++;
+    }
+
+    private void skipComment() throws XMLStreamException {
+        position += 3;
+        while (!(at(position) == '-' && at(position + 1) == '-' && at(position + 2) == '>')) {
+            position++;
+        }
+        position += 3;
+    }
+
+    private void skipDeclaration() throws XMLStreamException {
+        // `<!DOCTYPE ...>`, possibly with an internal subset in brackets
+        int brackets = 0;
+        while (true) {
+            byte b = at(position++);
+            if (b == '[') {
+                brackets++;
+            } else if (b == ']') {
+                brackets--;
+            } else if (b == '>' && brackets == 0) {
+                return;
+            }
+        }
+    }
+
+    private void skipPast(byte first, byte second) throws XMLStreamException {
+        while (!(at(position) == first && at(position + 1) == second)) {
+            position++;
+        }
+        position += 2;
+    }
+
+    private byte at(int index) throws XMLStreamException {
+        if (index >= limit) {
+            throw error("Unexpected end of document");
+        }
+        return buffer.get(index);
+    }
+
+    private boolean is(byte[] name) {
+        return equals(nameStart, nameEnd, name);
+    }
+
+    private boolean attributeIs(int attribute, byte[] name) {
+        return equals(attributeNameStart[attribute], attributeNameEnd[attribute], name);
+    }
+
+    private boolean equals(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int attribute(byte[] name) {
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeIs(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the decoded value of the attribute or {@code null} when it is missing
+     */
+    private String string(byte[] name) throws XMLStreamException {
+        int i = attribute(name);
+        return i >= 0 ? decode(valueStart[i], valueEnd[i]) : null;
+    }
+
+    private int parseInt(int attribute) throws XMLStreamException {
+        int start = valueStart[attribute];
+        int end = valueEnd[attribute];
+        boolean negative = start < end && buffer.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 10) {
+            throw invalidValue(attribute);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidValue(attribute);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidValue(attribute);
+        }
+        return (int) value;
+    }
+
+    private XMLStreamException invalidValue(int attribute) throws XMLStreamException {
+        return error("Invalid value `" + decode(valueStart[attribute], valueEnd[attribute]) + "` of attribute `"
+                + decode(attributeNameStart[attribute], attributeNameEnd[attribute]) + "`");
+    }
+
+    private String decode(int start, int end) throws XMLStreamException {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        boolean escaped = false;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            escaped |= b == '&';
+            scratch[i] = b;
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        return escaped ? unescape(value) : value;
+    }
+
+    private XMLStreamException error(String message) {
+        return new XMLStreamException(message + " at byte " + position);
+    }
+
+    private String unescape(String value) throws XMLStreamException {
+        StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            int semicolon = c == '&' ? value.indexOf(';', i) : -1;
+            if (c != '&') {
+                result.append(c);
+                i++;
+                continue;
+            }
+            if (semicolon < 0) {
+                throw error("Unterminated entity in `" + value + "`");
+            }
+            String entity = value.substring(i + 1, semicolon);
+            switch (entity) {
+            case "lt":
+                result.append('<');
+                break;
+            case "gt":
+                result.append('>');
+                break;
+            case "amp":
+                result.append('&');
+                break;
+            case "quot":
+                result.append('"');
+                break;
+            case "apos":
+                result.append('\'');
+                break;
+            default:
+                try {
+                    result.appendCodePoint(entity.startsWith("#x") ? Integer.parseInt(entity.substring(2), 16)
+                            : Integer.parseInt(entity.substring(1)));
+                } catch (RuntimeException e) {
+                    throw error("Unknown entity `&" + entity + ";`");
+                }
+            }
+            i = semicolon + 1;
+        }
+        return result.toString();
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return isWhitespace(b) || b == '>' || b == '/';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
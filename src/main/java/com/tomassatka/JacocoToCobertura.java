@@ -0,0 +1,200 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts JaCoCo reports to Cobertura without Maven, the conversion of the {@code jacocoToCobertura} goal for
+ * other build tools and scripts. Configured through setters named after the goal's parameters:
+ *
+ * <pre>
+ * JacocoToCobertura converter = new JacocoToCobertura();
+ * converter.setInputFiles(List.of(new File("build/reports/jacoco/test/jacocoTestReport.xml")));
+ * converter.setOutputFile(new File("build/reports/cobertura.xml"));
+ * converter.setSourceDirectories(List.of("src/main/java"));
+ * converter.convert();
+ * </pre>
+ *
+ * As with the goal, conversions are only incremental when {@link #setIncremental(boolean)} is enabled. Unlike the
+ * goal, failures are thrown instead of logged. A converter may be reused, but not by several threads at the same time.
+ */
+public class JacocoToCobertura {
+
+    /**
+     * Receives the progress of a conversion, by default it is printed to {@code System.out} and {@code System.err}.
+     */
+    public interface Log {
+
+        void info(String message);
+
+        void warn(String message);
+
+        void error(String message);
+    }
+
+    static final Log SYSTEM_LOG = new Log() {
+        @Override
+        public void info(String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void warn(String message) {
+            System.err.println("warning: " + message);
+        }
+
+        @Override
+        public void error(String message) {
+            System.err.println("error: " + message);
+        }
+    };
+
+    private List<File> inputFiles = List.of();
+    private List<File> execFiles = List.of();
+    private List<File> classDirectories = List.of();
+    private List<String> includes = List.of();
+    private List<String> excludes = List.of();
+    private File changedFiles;
+    private File outputFile;
+    private List<String> sourceDirectories = List.of();
+    private boolean splitByPackage;
+    private long maxOutputBytes;
+    private String parser = "stax";
+    private String writer = "stream";
+    private int threads;
+    private boolean incremental;
+    private String compression = "none";
+    private boolean writeMetrics;
+    private boolean shareSerializers = true;
+    private long maxMemoryBytes;
+    private Log log = SYSTEM_LOG;
+
+    /**
+     * JaCoCo XML reports, several reports are merged into one Cobertura report.
+     */
+    public void setInputFiles(List<File> inputFiles) {
+        this.inputFiles = inputFiles;
+    }
+
+    /**
+     * JaCoCo execution data converted instead of XML reports, together with {@code classDirectories}.
+     */
+    public void setExecFiles(List<File> execFiles) {
+        this.execFiles = execFiles;
+    }
+
+    public void setClassDirectories(List<File> classDirectories) {
+        this.classDirectories = classDirectories;
+    }
+
+    public void setIncludes(List<String> includes) {
+        this.includes = includes;
+    }
+
+    public void setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+    }
+
+    public void setChangedFiles(File changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
+    public void setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public void setSourceDirectories(List<String> sourceDirectories) {
+        this.sourceDirectories = sourceDirectories;
+    }
+
+    public void setSplitByPackage(boolean splitByPackage) {
+        this.splitByPackage = splitByPackage;
+    }
+
+    public void setMaxOutputBytes(long maxOutputBytes) {
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    public void setParser(String parser) {
+        this.parser = parser;
+    }
+
+    public void setWriter(String writer) {
+        this.writer = writer;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public void setWriteMetrics(boolean writeMetrics) {
+        this.writeMetrics = writeMetrics;
+    }
+
+    public void setShareSerializers(boolean shareSerializers) {
+        this.shareSerializers = shareSerializers;
+    }
+
+    /**
+     * Estimated size of the packages kept in memory while merging reports above which they are spilled to disk,
+     * {@code 0} for no ceiling.
+     */
+    public void setMaxMemoryBytes(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * @throws JacocoToCoberturaException when the configuration is invalid or a report cannot be converted
+     */
+    public void convert() throws IOException {
+        if (outputFile == null) {
+            throw new JacocoToCoberturaException("`outputFile` is not configured");
+        }
+        boolean execution = execFiles != null && !execFiles.isEmpty();
+        if (execution && (classDirectories == null || classDirectories.isEmpty())) {
+            throw new JacocoToCoberturaException("`classDirectories` must be configured with `execFiles`");
+        }
+        if (!execution && (inputFiles == null || inputFiles.isEmpty())) {
+            throw new JacocoToCoberturaException("Neither `inputFiles` nor `execFiles` is configured");
+        }
+        CoverageFilter filter = new CoverageFilter(includes, excludes,
+                changedFiles != null ? ChangedFiles.load(changedFiles) : null);
+        new JacocoToCoberturaTask.Builder(execution ? execFiles : inputFiles, outputFile.getAbsoluteFile(), log)
+                .classDirectories(execution ? classDirectories : null)
+                .filter(filter)
+                .sourceDirectories(sourceDirectories)
+                .splitByPackage(splitByPackage)
+                .maxOutputBytes(maxOutputBytes)
+                .parser(parser)
+                .writer(writer)
+                .compression(compression)
+                .threads(threads)
+                .incremental(incremental)
+                .writeMetrics(writeMetrics)
+                .shareSerializers(shareSerializers)
+                .maxMemoryBytes(maxMemoryBytes)
+                .pluginVersion(version())
+                .build()
+                .execute();
+    }
+
+    /**
+     * @return the version of the plugin jar, {@code null} when it is not run from a jar
+     */
+    static String version() {
+        return JacocoToCobertura.class.getPackage().getImplementationVersion();
+    }
+}
@@ -0,0 +1,244 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Converts the JaCoCo reports of all modules of a reactor build at once.
+ * <p>
+ * The goal does nothing until the last project of the reactor, there it converts the report of every module and
+ * optionally merges all of them into one report. The conversions run concurrently within this single execution. In a
+ * parallel build, {@code mvn -T}, the last project may be reached while other modules are still being built, so the
+ * goal first waits for all other projects of the reactor to finish.
+ */
+@Mojo(name = "aggregate", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class JacocoToCoberturaAggregateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+    private List<MavenProject> reactorProjects;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * JaCoCo XML report of a module, relative to its build directory.
+     */
+    @Parameter(property = "jacocoReport", defaultValue = "site/jacoco/jacoco.xml")
+    private String jacocoReport;
+
+    /**
+     * Cobertura report written for every module with a JaCoCo report, relative to its build directory. No module
+     * reports are written when it is empty.
+     */
+    @Parameter(property = "moduleOutputFile", defaultValue = "cobertura.xml")
+    private String moduleOutputFile;
+
+    /**
+     * Cobertura report of all modules merged, not written when it is not set.
+     */
+    @Parameter(property = "aggregateOutputFile")
+    private File aggregateOutputFile;
+
+    /**
+     * Glob patterns of the packages, classes and source files to convert, like the includes of the
+     * {@code jacocoToCobertura} goal.
+     */
+    @Parameter(property = "includes")
+    private List<String> includes;
+
+    /**
+     * Glob patterns of the packages, classes and source files to leave out.
+     */
+    @Parameter(property = "excludes")
+    private List<String> excludes;
+
+    /**
+     * List of the changed source files, like the changed files of the {@code jacocoToCobertura} goal.
+     */
+    @Parameter(property = "changedFiles")
+    private File changedFiles;
+
+    @Parameter(property = "parser", defaultValue = "stax")
+    private String parser;
+
+    @Parameter(property = "writer", defaultValue = "stream")
+    private String writer;
+
+    @Parameter(property = "compression", defaultValue = "none")
+    private String compression;
+
+    /**
+     * Number of reports converted concurrently, {@code 0} uses all available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    @Parameter(property = "incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * Estimated size in bytes of the packages of the aggregate report kept in memory while the module reports are
+     * merged, above which they are spilled to disk. {@code 0} keeps everything in memory.
+     */
+    @Parameter(property = "maxMemoryBytes", defaultValue = "0")
+    private long maxMemoryBytes;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        MavenProject lastProject = reactorProjects.get(reactorProjects.size() - 1);
+        if (project != lastProject) {
+            getLog().info("Cobertura conversion deferred to the last project of the build: "
+                    + lastProject.getArtifactId());
+            return;
+        }
+        if (session.isParallel() && !awaitReactor()) {
+            getLog().warn("A project of the build failed, converting the JaCoCo reports written so far");
+        }
+
+        CoverageFilter filter;
+        try {
+            filter = new CoverageFilter(includes, excludes,
+                    changedFiles != null ? ChangedFiles.load(changedFiles) : null);
+        } catch (JacocoToCoberturaException | IOException e) {
+            throw new MojoExecutionException("Changed files could not be read, error: `" + e.getMessage() + "`", e);
+        }
+        List<File> reports = new ArrayList<>();
+        Set<String> allSourceDirectories = new LinkedHashSet<>();
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Map.Entry<String, Future<?>>> conversions = new ArrayList<>();
+        try {
+            for (MavenProject module : reactorProjects) {
+                File buildDirectory = new File(module.getBuild().getDirectory());
+                File report = new File(buildDirectory, jacocoReport);
+                if (!report.isFile()) {
+                    continue;
+                }
+                List<String> sourceDirectories = sourceDirectories(module);
+                reports.add(report);
+                allSourceDirectories.addAll(sourceDirectories);
+                if (moduleOutputFile != null && !moduleOutputFile.isEmpty()) {
+                    // modules are spread over the pool, a single report is converted by a single thread
+                    JacocoToCoberturaTask task = new JacocoToCoberturaTask.Builder(List.of(report),
+                            new File(buildDirectory, moduleOutputFile), JacocoToCoberturaMojo.log(getLog()))
+                            .filter(filter)
+                            .sourceDirectories(sourceDirectories)
+                            .parser(parser)
+                            .writer(writer)
+                            .compression(compression)
+                            .threads(1)
+                            .incremental(incremental)
+                            .pluginVersion(pluginVersion)
+                            .build();
+                    conversions.add(Map.entry(module.getArtifactId(), pool.submit(() -> {
+                        task.execute();
+                        return null;
+                    })));
+                }
+            }
+            if (reports.isEmpty()) {
+                getLog().info("Skipping JaCoCo conversion, no module has a JaCoCo report at " + jacocoReport);
+                return;
+            }
+            if (aggregateOutputFile != null) {
+                JacocoToCoberturaTask task = new JacocoToCoberturaTask.Builder(reports, aggregateOutputFile,
+                        JacocoToCoberturaMojo.log(getLog()))
+                        .filter(filter)
+                        .sourceDirectories(new ArrayList<>(allSourceDirectories))
+                        .parser(parser)
+                        .writer(writer)
+                        .compression(compression)
+                        .threads(1)
+                        .incremental(incremental)
+                        .maxMemoryBytes(maxMemoryBytes)
+                        .pluginVersion(pluginVersion)
+                        .build();
+                conversions.add(Map.entry("aggregate", pool.submit(() -> {
+                    task.execute();
+                    return null;
+                })));
+            }
+            complete(conversions);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits until every other project of the reactor has been built, none of them depends on the last project.
+     *
+     * @return {@code false} when the build failed before, the failed project and the ones depending on it are never
+     *         finished
+     */
+    private boolean awaitReactor() throws MojoExecutionException {
+        MavenExecutionResult result = session.getResult();
+        try {
+            for (MavenProject module : reactorProjects) {
+                while (module != project && result.getBuildSummary(module) == null) {
+                    if (result.hasExceptions()) {
+                        return false;
+                    }
+                    Thread.sleep(100);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for the other projects of the build", e);
+        }
+    }
+
+    /**
+     * Waits for all conversions, a failing conversion is logged without stopping the others.
+     */
+    private void complete(List<Map.Entry<String, Future<?>>> conversions) {
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Future<?>> conversion : conversions) {
+            try {
+                conversion.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                conversions.forEach(pending -> pending.getValue().cancel(true));
+                getLog().error("Cobertura conversion interrupted");
+                return;
+            } catch (ExecutionException e) {
+                getLog().error("Cobertura conversion of " + conversion.getKey() + " failed:", e.getCause());
+                failures.add(conversion.getKey());
+            }
+        }
+        if (failures.isEmpty()) {
+            getLog().info("Converted " + conversions.size() + " JaCoCo reports to Cobertura");
+        } else {
+            getLog().error("Cobertura conversion failed for " + failures.size() + " of " + conversions.size()
+                    + " reports: " + String.join(", ", failures));
+        }
+    }
+
+    private static List<String> sourceDirectories(MavenProject module) {
+        return new ArrayList<>(module.getCompileSourceRoots());
+    }
+}
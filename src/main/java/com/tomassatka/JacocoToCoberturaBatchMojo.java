@@ -0,0 +1,270 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Converts every JaCoCo report of a directory tree, e.g. the reports of all shards of a test run.
+ * <p>
+ * The reports are converted concurrently on one pool, each by a single thread, and share their canonical strings.
+ * Every report is written to the output directory under its path relative to the input directory, a failing
+ * conversion is logged without stopping the others. The result of every conversion is summarized in
+ * {@code jacoco-to-cobertura-batch.json} in the output directory.
+ */
+@Mojo(name = "batch", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class JacocoToCoberturaBatchMojo extends AbstractMojo {
+
+    static final String SUMMARY_FILE = "jacoco-to-cobertura-batch.json";
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * Directory searched for JaCoCo reports.
+     */
+    @Parameter(property = "inputDirectory", required = true)
+    private File inputDirectory;
+
+    /**
+     * Glob pattern of the JaCoCo reports, relative to {@code inputDirectory}.
+     */
+    @Parameter(property = "inputPattern", defaultValue = "**/jacoco.xml")
+    private String inputPattern;
+
+    /**
+     * Directory of the Cobertura reports, the report of {@code shard-1/jacoco.xml} is written to
+     * {@code shard-1/cobertura-jacoco.xml}.
+     */
+    @Parameter(property = "outputDirectory", defaultValue = "${project.build.directory}/cobertura")
+    private File outputDirectory;
+
+    /**
+     * Source directories written into every report, the project's source directories when not configured.
+     */
+    @Parameter(property = "sourceDirectories")
+    private List<String> sourceDirectories;
+
+    @Parameter(property = "includes")
+    private List<String> includes;
+
+    @Parameter(property = "excludes")
+    private List<String> excludes;
+
+    @Parameter(property = "changedFiles")
+    private File changedFiles;
+
+    @Parameter(property = "parser", defaultValue = "stax")
+    private String parser;
+
+    @Parameter(property = "writer", defaultValue = "stream")
+    private String writer;
+
+    @Parameter(property = "compression", defaultValue = "none")
+    private String compression;
+
+    /**
+     * Number of reports converted concurrently, {@code 0} uses all available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    @Parameter(property = "incremental", defaultValue = "false")
+    private boolean incremental;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        List<File> reports;
+        CoverageFilter filter;
+        try {
+            reports = InputFiles.resolve(inputDirectory, List.of(inputPattern));
+            filter = new CoverageFilter(includes, excludes,
+                    changedFiles != null ? ChangedFiles.load(changedFiles) : null);
+        } catch (JacocoToCoberturaException | IOException e) {
+            throw new MojoExecutionException("JaCoCo reports in " + inputDirectory + " could not be listed, error: `"
+                    + e.getMessage() + "`", e);
+        }
+        if (reports.isEmpty()) {
+            getLog().info("Skipping JaCoCo conversion, no report in " + inputDirectory + " matches " + inputPattern);
+            return;
+        }
+
+        List<String> sources = sourceDirectories != null && !sourceDirectories.isEmpty()
+                ? sourceDirectories : sourceDirectories(project);
+        StringPool strings = new StringPool();
+        JacocoToCobertura.Log log = quietLog();
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        getLog().info("Converting " + reports.size() + " JaCoCo reports to Cobertura on " + parallelism + " threads");
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Conversion> conversions = new ArrayList<>();
+        try {
+            for (File report : reports) {
+                Conversion conversion = new Conversion(report, outputFile(report));
+                JacocoToCoberturaTask task = new JacocoToCoberturaTask.Builder(List.of(report), conversion.output,
+                        log)
+                        .filter(filter)
+                        .sourceDirectories(sources)
+                        .parser(parser)
+                        .writer(writer)
+                        .compression(compression)
+                        .threads(1)
+                        .incremental(incremental)
+                        .strings(strings)
+                        .pluginVersion(pluginVersion)
+                        .build();
+                conversion.future = pool.submit(() -> {
+                    long taskStart = System.nanoTime();
+                    try {
+                        task.execute();
+                    } finally {
+                        conversion.nanos = System.nanoTime() - taskStart;
+                    }
+                    return null;
+                });
+                conversions.add(conversion);
+            }
+            complete(conversions);
+        } finally {
+            pool.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        File summary = new File(outputDirectory, SUMMARY_FILE);
+        try {
+            writeSummary(summary, conversions, nanos);
+        } catch (IOException e) {
+            getLog().error("Batch summary " + summary + " could not be written, error: `" + e.getMessage() + "`");
+        }
+    }
+
+    /**
+     * @return the Cobertura report of {@code report}, e.g. {@code shard-1/cobertura-jacoco.xml}
+     */
+    File outputFile(File report) {
+        Path relative = inputDirectory.toPath().toAbsolutePath().normalize().relativize(report.toPath());
+        String name = relative.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        if (name.endsWith(".xml")) {
+            name = name.substring(0, name.length() - ".xml".length());
+        }
+        Path parent = relative.getParent();
+        File directory = parent != null ? new File(outputDirectory, parent.toString()) : outputDirectory;
+        return new File(directory, "cobertura-" + name + ".xml");
+    }
+
+    /**
+     * Waits for all conversions, a failing conversion is logged without stopping the others.
+     */
+    private void complete(List<Conversion> conversions) {
+        int failures = 0;
+        for (Conversion conversion : conversions) {
+            try {
+                conversion.future.get();
+                getLog().info("Converted " + conversion.input + " in " + conversion.nanos / 1_000_000 + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                conversions.forEach(pending -> pending.future.cancel(true));
+                getLog().error("Cobertura conversion interrupted");
+                return;
+            } catch (ExecutionException e) {
+                conversion.error = e.getCause();
+                getLog().error("Cobertura conversion of " + conversion.input + " failed:", e.getCause());
+                failures++;
+            }
+        }
+        if (failures == 0) {
+            getLog().info("Converted " + conversions.size() + " JaCoCo reports to Cobertura");
+        } else {
+            getLog().error("Cobertura conversion failed for " + failures + " of " + conversions.size() + " reports");
+        }
+    }
+
+    private void writeSummary(File file, List<Conversion> conversions, long nanos) throws IOException {
+        long failed = conversions.stream().filter(conversion -> conversion.error != null).count();
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"wallTimeMs\": ").append(nanos / 1_000_000).append(",\n");
+        json.append("  \"reports\": ").append(conversions.size()).append(",\n");
+        json.append("  \"succeeded\": ").append(conversions.size() - failed).append(",\n");
+        json.append("  \"failed\": ").append(failed).append(",\n");
+        json.append("  \"conversions\": [\n");
+        int i = 0;
+        for (Conversion conversion : conversions) {
+            json.append("    {\"input\": ").append(Json.string(conversion.input.getPath()))
+                    .append(", \"output\": ").append(Json.string(conversion.output.getPath()))
+                    .append(", \"timeMs\": ").append(conversion.nanos / 1_000_000)
+                    .append(", \"succeeded\": ").append(conversion.error == null);
+            if (conversion.error != null) {
+                json.append(", \"error\": ").append(Json.string(String.valueOf(conversion.error.getMessage())));
+            }
+            json.append(++i < conversions.size() ? "},\n" : "}\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        Files.createDirectories(file.getParentFile().toPath());
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+    }
+
+    /**
+     * @return the log of the single conversions, their configuration is only logged in debug mode
+     */
+    private JacocoToCobertura.Log quietLog() {
+        return new JacocoToCobertura.Log() {
+            @Override
+            public void info(String message) {
+                getLog().debug(message);
+            }
+
+            @Override
+            public void warn(String message) {
+                getLog().warn(message);
+            }
+
+            @Override
+            public void error(String message) {
+                getLog().error(message);
+            }
+        };
+    }
+
+    private static List<String> sourceDirectories(MavenProject project) {
+        return new ArrayList<>(project.getCompileSourceRoots());
+    }
+
+    private static class Conversion {
+        final File input;
+        final File output;
+        Future<?> future;
+        long nanos;
+        Throwable error;
+
+        Conversion(File input, File output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line of the converter, run as {@code java -jar jacoco-to-cobertura-maven-plugin-<version>-cli.jar}.
+ * <p>
+ * Options are the parameters of the {@code jacocoToCobertura} goal, {@code --name value} or {@code --name=value}.
+ * List options may be repeated or separated by commas, relative paths are resolved against the working directory
+ * and report and execution data paths may be glob patterns. Exits with {@code 1} when the conversion fails and
+ * {@code 2} for invalid options.
+ */
+public class JacocoToCoberturaCli {
+
+    private static final Set<String> LISTS = Set.of("inputFiles", "execFiles", "classDirectories", "includes",
+            "excludes", "sourceDirectories");
+    private static final Set<String> FLAGS = Set.of("splitByPackage", "incremental", "writeMetrics", "quiet");
+    private static final Set<String> VALUES = Set.of("inputFile", "changedFiles", "outputFile", "maxOutputBytes",
+            "parser", "writer", "threads", "compression", "shareSerializers", "maxMemoryBytes");
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar jacoco-to-cobertura-maven-plugin-cli.jar --inputFile jacoco.xml"
+                    + " --outputFile cobertura.xml --sourceDirectories src/main/java [options]",
+            "",
+            "  --inputFile, --inputFiles  JaCoCo XML reports, several reports are merged",
+            "  --execFiles                JaCoCo execution data converted instead of XML reports",
+            "  --classDirectories         classes analyzed with --execFiles",
+            "  --outputFile               Cobertura report to write",
+            "  --sourceDirectories        source directories written into the report",
+            "  --includes, --excludes     glob patterns of packages, classes and source files",
+            "  --changedFiles             list of the changed source files, the only ones converted",
+            "  --splitByPackage           one report per package",
+            "  --maxOutputBytes           size budget of a report, the packages are packed into several reports",
+            "  --parser                   stax (default), mapped or persister",
+            "  --writer                   stream (default) or persister",
+            "  --compression              none (default), gzip or zip",
+            "  --threads                  threads transforming packages, 0 (default) for all processors",
+            "  --incremental              skip the conversion when nothing changed since the last run",
+            "  --writeMetrics             write the conversion metrics next to the report",
+            "  --shareSerializers false   do not reuse the Simple XML serializers of the persister options",
+            "  --maxMemoryBytes           packages kept in memory above which merged packages are spilled to disk",
+            "  --quiet                    log warnings and errors only");
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Map<String, List<String>> options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (options.containsKey("help")) {
+            System.out.println(USAGE);
+            return 0;
+        }
+        try {
+            configure(options).convert();
+            return 0;
+        } catch (JacocoToCoberturaException | IOException e) {
+            System.err.println("error: " + e.getMessage());
+            return 1;
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+    }
+
+    static Map<String, List<String>> parse(String[] args) {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                options.put("help", List.of());
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument `" + arg + "`");
+            }
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+            if (!LISTS.contains(name) && !FLAGS.contains(name) && !VALUES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option `--" + name + "`");
+            }
+            String value;
+            if (equals >= 0) {
+                value = arg.substring(equals + 1);
+            } else if (FLAGS.contains(name)) {
+                value = "true";
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value of `--" + name + "`");
+            }
+            List<String> values = options.computeIfAbsent(name, key -> new ArrayList<>());
+            if (LISTS.contains(name)) {
+                for (String element : value.split(",")) {
+                    if (!element.isBlank()) {
+                        values.add(element.trim());
+                    }
+                }
+            } else {
+                values.clear();
+                values.add(value);
+            }
+        }
+        return options;
+    }
+
+    private static JacocoToCobertura configure(Map<String, List<String>> options) throws IOException {
+        JacocoToCobertura converter = new JacocoToCobertura();
+        List<String> inputs = new ArrayList<>(options.getOrDefault("inputFile", List.of()));
+        inputs.addAll(options.getOrDefault("inputFiles", List.of()));
+        converter.setInputFiles(InputFiles.resolve(null, inputs));
+        converter.setExecFiles(InputFiles.resolve(null, options.getOrDefault("execFiles", List.of())));
+        converter.setClassDirectories(InputFiles.resolve(null, options.getOrDefault("classDirectories", List.of())));
+        converter.setIncludes(options.getOrDefault("includes", List.of()));
+        converter.setExcludes(options.getOrDefault("excludes", List.of()));
+        if (options.containsKey("changedFiles")) {
+            converter.setChangedFiles(new File(value(options, "changedFiles", null)));
+        }
+        if (options.containsKey("outputFile")) {
+            converter.setOutputFile(new File(value(options, "outputFile", null)));
+        }
+        converter.setSourceDirectories(options.getOrDefault("sourceDirectories", List.of()));
+        converter.setSplitByPackage(Boolean.parseBoolean(value(options, "splitByPackage", "false")));
+        converter.setMaxOutputBytes(number(options, "maxOutputBytes"));
+        converter.setParser(value(options, "parser", "stax"));
+        converter.setWriter(value(options, "writer", "stream"));
+        converter.setThreads((int) number(options, "threads"));
+        converter.setIncremental(Boolean.parseBoolean(value(options, "incremental", "false")));
+        converter.setCompression(value(options, "compression", "none"));
+        converter.setWriteMetrics(Boolean.parseBoolean(value(options, "writeMetrics", "false")));
+        converter.setShareSerializers(Boolean.parseBoolean(value(options, "shareSerializers", "true")));
+        converter.setMaxMemoryBytes(number(options, "maxMemoryBytes"));
+        if (Boolean.parseBoolean(value(options, "quiet", "false"))) {
+            converter.setLog(new JacocoToCobertura.Log() {
+                @Override
+                public void info(String message) {
+                }
+
+                @Override
+                public void warn(String message) {
+                    JacocoToCobertura.SYSTEM_LOG.warn(message);
+                }
+
+                @Override
+                public void error(String message) {
+                    JacocoToCobertura.SYSTEM_LOG.error(message);
+                }
+            });
+        }
+        return converter;
+    }
+
+    private static String value(Map<String, List<String>> options, String name, String defaultValue) {
+        List<String> values = options.get(name);
+        return values != null ? values.get(0) : defaultValue;
+    }
+
+    private static long number(Map<String, List<String>> options, String name) {
+        String value = value(options, name, "0");
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number `" + value + "` of `--" + name + "`");
+        }
+    }
+}
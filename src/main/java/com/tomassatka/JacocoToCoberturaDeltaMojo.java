@@ -0,0 +1,104 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Compares the coverage of a report with a baseline report, e.g. of the target branch of a merge request, and writes
+ * the new uncovered lines, the change of the line coverage of every changed package and class and the totals.
+ * <p>
+ * Both reports may be JaCoCo or Cobertura XML, gzip compressed or not. The baseline is indexed, the current report is
+ * compared with it while it is being read.
+ */
+@Mojo(name = "delta", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class JacocoToCoberturaDeltaMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * Report the current report is compared with, e.g. downloaded from the last pipeline of the target branch.
+     */
+    @Parameter(property = "baselineFile", required = true)
+    private File baselineFile;
+
+    @Parameter(property = "currentFile", defaultValue = "${project.build.directory}/site/jacoco/jacoco.xml")
+    private File currentFile;
+
+    @Parameter(property = "deltaOutputFile", defaultValue = "${project.build.directory}/coverage-delta.json")
+    private File outputFile;
+
+    /**
+     * {@code json} for the delta with totals, or {@code cobertura} for a Cobertura report of the changed lines only.
+     */
+    @Parameter(property = "deltaFormat", defaultValue = "json")
+    private String format;
+
+    /**
+     * Parser of JaCoCo reports, {@code stax} or {@code mapped}; Cobertura reports are always read by StAX.
+     */
+    @Parameter(property = "parser", defaultValue = "stax")
+    private String parser;
+
+    /**
+     * Source directories written into a {@code cobertura} delta, the project's source directories when not
+     * configured.
+     */
+    @Parameter(property = "sourceDirectories")
+    private List<String> sourceDirectories;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!baselineFile.isFile()) {
+            getLog().info("Skipping coverage delta due to missing baseline report: " + baselineFile);
+            return;
+        }
+        if (!currentFile.isFile()) {
+            getLog().info("Skipping coverage delta due to missing report: " + currentFile);
+            return;
+        }
+        if (!CoverageDelta.FORMATS.contains(format)) {
+            throw new MojoExecutionException("Unknown format `" + format + "`");
+        }
+        if (!List.of("stax", "mapped").contains(parser)) {
+            throw new MojoExecutionException("Unknown parser `" + parser + "`");
+        }
+
+        long start = System.nanoTime();
+        CoverageDelta.Totals totals;
+        try (CoverageDelta.Output output = "cobertura".equals(format)
+                ? new CoverageDelta.CoberturaDelta(outputFile, sources(), currentFile.lastModified() / 1000)
+                : new CoverageDelta.JsonDelta(outputFile, baselineFile, currentFile)) {
+            totals = CoverageDelta.compare(baselineFile, currentFile, parser, output);
+        } catch (JacocoToCoberturaException e) {
+            throw new MojoExecutionException("Coverage delta of " + currentFile + " could not be compared: "
+                    + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Coverage delta " + outputFile + " could not be written, error: `"
+                    + e.getMessage() + "`", e);
+        }
+
+        getLog().info(String.format(Locale.ROOT, "Line coverage %.2f%% -> %.2f%% (%+.2f%%), %d new uncovered and %d new covered"
+                        + " lines in %d changed packages", 100 * totals.baseline.rate(), 100 * totals.current.rate(),
+                100 * (totals.current.rate() - totals.baseline.rate()), totals.newUncoveredLines,
+                totals.newCoveredLines, totals.changedPackages));
+        getLog().info("Coverage delta generated at " + outputFile + " in " + (System.nanoTime() - start) / 1_000_000
+                + " ms");
+    }
+
+    private List<String> sources() {
+        return sourceDirectories != null && !sourceDirectories.isEmpty() ? sourceDirectories
+                : new ArrayList<>(project.getCompileSourceRoots());
+    }
+}
@@ -2,7 +2,6 @@ package com.tomassatka;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.List;
 
 import org.apache.maven.plugin.AbstractMojo;
@@ -11,16 +10,57 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.core.Persister;
-import org.simpleframework.xml.stream.Format;
 
 @Mojo(name = "jacocoToCobertura", defaultPhase = LifecyclePhase.TEST)
 public class JacocoToCoberturaMojo extends AbstractMojo {
 
-    @Parameter(property = "inputFile", required = true)
+    @Parameter(property = "inputFile")
     private File inputFile;
 
+    /**
+     * Further JaCoCo reports merged with {@code inputFile} into one Cobertura report, relative paths are resolved
+     * against the project directory and may contain glob patterns such as {@code *-module/target/site/jacoco/jacoco.xml}.
+     */
+    @Parameter(property = "inputFiles")
+    private List<String> inputFiles;
+
+    /**
+     * JaCoCo execution data files converted instead of an XML report, relative paths are resolved against the
+     * project directory and may contain glob patterns. The classes the data was recorded for are analyzed with the
+     * JaCoCo core, so no {@code jacoco:report} run is needed.
+     */
+    @Parameter(property = "execFiles")
+    private List<String> execFiles;
+
+    /**
+     * Class directories, jar files or glob patterns of jar files analyzed with {@code execFiles}, the project's
+     * output directory when not configured.
+     */
+    @Parameter(property = "classDirectories")
+    private List<String> classDirectories;
+
+    /**
+     * Glob patterns of the packages, classes and source files to convert, everything when empty. Patterns match
+     * JaCoCo's names, {@code com/example/Foo} for a class and {@code com/example/Foo.java} for a source file;
+     * {@code *} matches within a name segment and {@code **} across segments.
+     */
+    @Parameter(property = "includes")
+    private List<String> includes;
+
+    /**
+     * Glob patterns of the packages, classes and source files to leave out, taking precedence over the includes.
+     */
+    @Parameter(property = "excludes")
+    private List<String> excludes;
+
+    /**
+     * List of the changed source files, one path per line as written by {@code git diff --name-only}. Only these
+     * source files and the classes compiled from them are converted, e.g. for the coverage annotations of a merge
+     * request. A path matches a source file when it ends with the package and file name of it.
+     */
+    @Parameter(property = "changedFiles")
+    private File changedFiles;
+
     @Parameter(property = "outputFile", required = true)
     private File outputFile;
 
@@ -30,120 +70,138 @@ public class JacocoToCoberturaMojo extends AbstractMojo {
     @Parameter(property = "splitByPackage", defaultValue = "false")
     private boolean splitByPackage;
 
-
-    //TODO: temporary
-    public void setInputFile(File inputFile) {
-        this.inputFile = inputFile;
-    }
-    public void setOutputFile(File outputFile) {
-        this.outputFile = outputFile;
-    }
-    public void setSourceDirectories(List<String> sourceDirectories) {
-        this.sourceDirectories = sourceDirectories;
-    }
-    public void setSplitByPackage(boolean splitByPackage) {
-        this.splitByPackage = splitByPackage;
-    }
+    /**
+     * Size budget of a Cobertura report in bytes, {@code 0} for no budget. Whole packages are packed into as few
+     * reports {@code ${outputFile}-1.xml}, {@code -2.xml}, ... of at most this size as possible. Cannot be combined
+     * with {@code splitByPackage}.
+     */
+    @Parameter(property = "maxOutputBytes", defaultValue = "0")
+    private long maxOutputBytes;
+
+    /**
+     * JaCoCo report parser, {@code stax} streams the report package by package, {@code mapped} does the same by
+     * scanning the memory-mapped report, {@code persister} loads the whole report through Simple XML.
+     */
+    @Parameter(property = "parser", defaultValue = "stax")
+    private String parser;
+
+    /**
+     * Cobertura report writer, {@code stream} writes the XML directly from the JaCoCo data, {@code persister}
+     * builds the Cobertura object tree and serializes it through Simple XML.
+     */
+    @Parameter(property = "writer", defaultValue = "stream")
+    private String writer;
+
+    /**
+     * Number of threads transforming packages concurrently, {@code 0} uses all available processors and {@code 1}
+     * transforms them on the calling thread. With {@code splitByPackage} it limits the number of package reports
+     * written at the same time. The output does not depend on it.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Whether to skip the conversion when the input, the configuration and the plugin version did not change since
+     * the last run. With {@code splitByPackage} only the reports of changed packages are written again.
+     */
+    @Parameter(property = "incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * Compression of the Cobertura reports, {@code none}, {@code gzip} which appends {@code .gz} to every report or
+     * {@code zip} which writes all reports into one archive named after {@code outputFile} with a {@code .zip}
+     * extension.
+     */
+    @Parameter(property = "compression", defaultValue = "none")
+    private String compression;
+
+    /**
+     * Whether to write the conversion metrics, which are always logged, to {@code ${outputFile}.metrics.json}.
+     */
+    @Parameter(property = "writeMetrics", defaultValue = "false")
+    private boolean writeMetrics;
+
+    /**
+     * Whether the {@code persister} parser and writer reuse the Simple XML serializers of earlier conversions, which
+     * stay loaded with the plugin, e.g. across builds of the Maven daemon. Disable it to scan the report classes for
+     * every report again.
+     */
+    @Parameter(property = "shareSerializers", defaultValue = "true")
+    private boolean shareSerializers;
+
+    /**
+     * Estimated size in bytes of the JaCoCo packages kept in memory, e.g. while merging several reports, above which
+     * packages are spilled to a temporary file next to the output. {@code 0} keeps everything in memory. Applies to
+     * the {@code stax} and {@code mapped} parsers with the {@code stream} writer.
+     */
+    @Parameter(property = "maxMemoryBytes", defaultValue = "0")
+    private long maxMemoryBytes;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    @Parameter(defaultValue = "${project.basedir}", readonly = true)
+    private File baseDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", readonly = true)
+    private File classesDirectory;
 
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         try {
-            new JacocoToCoberturaTask(inputFile, outputFile, sourceDirectories, splitByPackage, getLog()).execute();
+            List<File> inputs;
+            List<File> classes = null;
+            if (execFiles != null && !execFiles.isEmpty()) {
+                inputs = InputFiles.resolve(baseDirectory, execFiles);
+                classes = classDirectories != null && !classDirectories.isEmpty()
+                        ? InputFiles.resolve(baseDirectory, classDirectories) : List.of(classesDirectory);
+            } else {
+                inputs = InputFiles.resolve(baseDirectory, inputFile, inputFiles);
+            }
+            CoverageFilter filter = new CoverageFilter(includes, excludes,
+                    changedFiles != null ? ChangedFiles.load(changedFiles) : null);
+            JacocoToCoberturaTask task = new JacocoToCoberturaTask.Builder(inputs, outputFile, log(getLog()))
+                    .classDirectories(classes)
+                    .filter(filter)
+                    .sourceDirectories(sourceDirectories)
+                    .splitByPackage(splitByPackage)
+                    .maxOutputBytes(maxOutputBytes)
+                    .parser(parser)
+                    .writer(writer)
+                    .compression(compression)
+                    .threads(threads)
+                    .incremental(incremental)
+                    .writeMetrics(writeMetrics)
+                    .shareSerializers(shareSerializers)
+                    .maxMemoryBytes(maxMemoryBytes)
+                    .pluginVersion(pluginVersion)
+                    .build();
+            task.execute();
         } catch (JacocoToCoberturaException | IOException e) {
             getLog().error("An error occurred during execution:", e);
         }
     }
-}
-
-class JacocoToCoberturaTask {
-
-    private File inputFile;
-    private File outputFile;
-    private List<String> sourceDirectories;
-    private boolean splitByPackage;
-    private org.apache.maven.plugin.logging.Log log;
-
-    public JacocoToCoberturaTask(File inputFile, File outputFile, List<String> sourceDirectories, boolean splitByPackage, org.apache.maven.plugin.logging.Log log) {
-        this.inputFile = inputFile;
-        this.outputFile = outputFile;
-        this.sourceDirectories = sourceDirectories;
-        this.splitByPackage = splitByPackage;
-        this.log = log;
-    }
-
-    public void execute() throws MojoExecutionException, JacocoToCoberturaException, IOException {
-        if (!inputFile.exists()) {
-            log.info("Skipping JaCoCo conversion due to missing input file: " + inputFile);
-            return;
-        }
 
-        log.info("Converting JaCoCo report to Cobertura");
-
-        File outputDirectory = outputFile.getParentFile();
-        if (!outputDirectory.exists()) {
-            try {
-                if (!outputDirectory.mkdirs()) {
-                    throw new MojoExecutionException("`mkdirs()` returned false");
-                }
-            } catch (Exception e) {
-                throw new MojoExecutionException("Output file directory " + outputDirectory.getAbsolutePath()
-                        + " does not exist and couldn't be created, error: " + e.getMessage());
+    /**
+     * @return the conversion log writing to the Maven log
+     */
+    static JacocoToCobertura.Log log(org.apache.maven.plugin.logging.Log log) {
+        return new JacocoToCobertura.Log() {
+            @Override
+            public void info(String message) {
+                log.info(message);
             }
-        }
 
-        log.info("Calculated configuration:");
-        log.info("  input: " + inputFile);
-        log.info("  output: " + outputFile);
-        log.info("  splitByPackage: " + splitByPackage);
-        log.info("sourceDirs:");
-        sourceDirectories.forEach(sourceDir -> log.info(" - " + sourceDir));
-
-        Jacoco.Report jacocoData = loadJacocoData(inputFile);
-
-        if (splitByPackage) {
-            for (Jacoco.PackageElement packageElement : jacocoData.getPackages()) {
-                String packageName = packageElement.getName().replace('/', '.');
-                Jacoco.Report packageData = jacocoData.copyReportWithPackage(jacocoData, packageElement);
-                File packageOut = new File(outputFile.getAbsolutePath().replace(".xml", "-" + packageName + ".xml"));
-                writeCoberturaData(packageOut, transformData(packageData, sourceDirectories));
-                log.info("Cobertura report for package " + packageName + " generated at "
-                        + packageOut);
+            @Override
+            public void warn(String message) {
+                log.warn(message);
             }
-        } else {
-            writeCoberturaData(outputFile, transformData(jacocoData, sourceDirectories));
-            log.info("Cobertura report generated at " + outputFile);
-        }
-    }
-
-    private Jacoco.Report loadJacocoData(File inputFile) throws JacocoToCoberturaException {
-        try {
-            Serializer serializer = new Persister();
-            return serializer.read(Jacoco.Report.class, inputFile);
-        } catch (Exception e) {
-            throw new JacocoToCoberturaException("Loading Jacoco report error: `" + e.getMessage() + "`");
-        }
-    }
 
-    private Cobertura.Coverage transformData(Jacoco.Report jacocoData, Collection<String> sources)
-            throws JacocoToCoberturaException {
-        try {
-            return new Cobertura.Coverage(jacocoData, sources);
-        } catch (Exception e) {
-            throw new JacocoToCoberturaException(
-                    "Transforming Jacoco Data to Cobertura error: `" + e.getMessage() + "`");
-        }
-    }
-
-    private void writeCoberturaData(File outputFile, Cobertura.Coverage data)
-            throws JacocoToCoberturaException, IOException {
-        try {
-            Persister persister = new Persister(new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-            persister.write(data, outputFile);
-        } catch (Exception e) {
-            throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputFile.getCanonicalPath()
-                    + "` error: `" + e.getMessage() + "`");
-        }
+            @Override
+            public void error(String message) {
+                log.error(message);
+            }
+        };
     }
-
 }
@@ -0,0 +1,846 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.simpleframework.xml.Serializer;
+
+/**
+ * One conversion of JaCoCo reports into Cobertura reports, configured through a {@link Builder} and shared by the
+ * goals, the command line and {@link JacocoToCobertura}.
+ */
+class JacocoToCoberturaTask {
+
+    private List<File> inputFiles;
+    private List<File> classDirectories;
+    private CoverageFilter filter;
+    private File outputFile;
+    private List<String> sourceDirectories;
+    private boolean splitByPackage;
+    private long maxOutputBytes;
+    private String parser;
+    private String writer;
+    private String compression;
+    private int threads;
+    private boolean incremental;
+    private boolean writeMetrics;
+    private String pluginVersion;
+    private JacocoToCobertura.Log log;
+    private ForkJoinPool pool;
+    private Fingerprints previousFingerprints;
+    private Fingerprints fingerprints;
+    private ConversionMetrics metrics;
+    private StringPool strings;
+    private boolean shareSerializers;
+    private long maxMemoryBytes;
+    private CoberturaOutput output;
+    private final Set<String> unchangedPackages = ConcurrentHashMap.newKeySet();
+
+    private JacocoToCoberturaTask(Builder builder) {
+        this.inputFiles = builder.inputFiles;
+        this.classDirectories = builder.classDirectories;
+        this.filter = builder.filter != null ? builder.filter : CoverageFilter.NONE;
+        this.outputFile = builder.outputFile;
+        this.sourceDirectories = builder.sourceDirectories != null ? builder.sourceDirectories : List.of();
+        this.splitByPackage = builder.splitByPackage;
+        this.maxOutputBytes = builder.maxOutputBytes;
+        this.parser = builder.parser != null ? builder.parser : "stax";
+        this.writer = builder.writer != null ? builder.writer : "stream";
+        this.compression = builder.compression != null ? builder.compression : "none";
+        this.threads = builder.threads > 0 ? builder.threads : Runtime.getRuntime().availableProcessors();
+        this.incremental = builder.incremental;
+        this.writeMetrics = builder.writeMetrics;
+        this.shareSerializers = builder.shareSerializers;
+        this.maxMemoryBytes = builder.maxMemoryBytes;
+        this.strings = builder.strings;
+        this.pluginVersion = builder.pluginVersion;
+        this.log = builder.log;
+    }
+
+    /**
+     * Configuration of a conversion, anything not set keeps the default of the goal.
+     */
+    static class Builder {
+        private final List<File> inputFiles;
+        private final File outputFile;
+        private final JacocoToCobertura.Log log;
+        private List<File> classDirectories;
+        private CoverageFilter filter;
+        private List<String> sourceDirectories;
+        private boolean splitByPackage;
+        private long maxOutputBytes;
+        private String parser;
+        private String writer;
+        private String compression;
+        private int threads;
+        private boolean incremental;
+        private boolean writeMetrics;
+        private boolean shareSerializers = true;
+        private long maxMemoryBytes;
+        private StringPool strings;
+        private String pluginVersion;
+
+        /**
+         * @param inputFiles JaCoCo XML reports, or execution data together with {@link #classDirectories(List)}
+         */
+        Builder(List<File> inputFiles, File outputFile, JacocoToCobertura.Log log) {
+            this.inputFiles = inputFiles;
+            this.outputFile = outputFile;
+            this.log = log;
+        }
+
+        /**
+         * @param classDirectories the classes analyzed with the execution data in the input files, {@code null}
+         *        when the input files are XML reports
+         */
+        public Builder classDirectories(List<File> classDirectories) {
+            this.classDirectories = classDirectories;
+            return this;
+        }
+
+        /**
+         * @param filter the packages, classes and source files converted, {@code null} for all of them
+         */
+        public Builder filter(CoverageFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder sourceDirectories(List<String> sourceDirectories) {
+            this.sourceDirectories = sourceDirectories;
+            return this;
+        }
+
+        public Builder splitByPackage(boolean splitByPackage) {
+            this.splitByPackage = splitByPackage;
+            return this;
+        }
+
+        public Builder maxOutputBytes(long maxOutputBytes) {
+            this.maxOutputBytes = maxOutputBytes;
+            return this;
+        }
+
+        public Builder parser(String parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        public Builder writer(String writer) {
+            this.writer = writer;
+            return this;
+        }
+
+        public Builder compression(String compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * @param threads {@code 0} for all available processors
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder incremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder writeMetrics(boolean writeMetrics) {
+            this.writeMetrics = writeMetrics;
+            return this;
+        }
+
+        /**
+         * Whether the {@code persister} parser and writer use the Simple XML serializers shared by all
+         * conversions, instead of scanning the report classes again.
+         */
+        public Builder shareSerializers(boolean shareSerializers) {
+            this.shareSerializers = shareSerializers;
+            return this;
+        }
+
+        /**
+         * Estimated size of the packages kept in memory above which packages waiting to be merged are spilled to
+         * disk and rendered packages are written out earlier, {@code 0} for no ceiling.
+         */
+        public Builder maxMemoryBytes(long maxMemoryBytes) {
+            this.maxMemoryBytes = maxMemoryBytes;
+            return this;
+        }
+
+        /**
+         * Shares the canonical strings with other conversions, e.g. of a batch of reports of the same code.
+         */
+        public Builder strings(StringPool strings) {
+            this.strings = strings;
+            return this;
+        }
+
+        /**
+         * @param pluginVersion part of the fingerprint of incremental conversions, {@code null} when unknown
+         */
+        public Builder pluginVersion(String pluginVersion) {
+            this.pluginVersion = pluginVersion;
+            return this;
+        }
+
+        public JacocoToCoberturaTask build() {
+            return new JacocoToCoberturaTask(this);
+        }
+    }
+
+    public void execute() throws JacocoToCoberturaException, IOException {
+        if (inputFiles.isEmpty()) {
+            log.info("Skipping JaCoCo conversion, no input file matched");
+            return;
+        }
+        for (File inputFile : inputFiles) {
+            if (!inputFile.exists()) {
+                log.info("Skipping JaCoCo conversion due to missing input file: " + inputFile);
+                return;
+            }
+        }
+        if (classDirectories != null) {
+            for (File classDirectory : classDirectories) {
+                if (!classDirectory.exists()) {
+                    log.info("Skipping JaCoCo conversion due to missing class directory: " + classDirectory);
+                    return;
+                }
+            }
+        }
+
+        log.info("Converting JaCoCo report to Cobertura");
+
+        if (!List.of("stax", "mapped", "persister").contains(parser)) {
+            throw new JacocoToCoberturaException("Unknown parser `" + parser + "`");
+        }
+        if (!List.of("stream", "persister").contains(writer)) {
+            throw new JacocoToCoberturaException("Unknown writer `" + writer + "`");
+        }
+        if (!CoberturaOutput.COMPRESSIONS.contains(compression)) {
+            throw new JacocoToCoberturaException("Unknown compression `" + compression + "`");
+        }
+        if (maxOutputBytes < 0) {
+            throw new JacocoToCoberturaException("Invalid maxOutputBytes `" + maxOutputBytes + "`");
+        }
+        if (maxOutputBytes > 0 && splitByPackage) {
+            throw new JacocoToCoberturaException("`maxOutputBytes` cannot be combined with `splitByPackage`");
+        }
+        if (maxMemoryBytes < 0) {
+            throw new JacocoToCoberturaException("Invalid maxMemoryBytes `" + maxMemoryBytes + "`");
+        }
+        if (maxMemoryBytes > 0 && ("persister".equals(parser) || "persister".equals(writer))) {
+            throw new JacocoToCoberturaException("`maxMemoryBytes` cannot be combined with the persister parser or"
+                    + " writer, they keep the whole report in memory");
+        }
+
+        File outputDirectory = outputFile.getParentFile();
+        if (!outputDirectory.exists()) {
+            try {
+                if (!outputDirectory.mkdirs()) {
+                    throw new JacocoToCoberturaException("`mkdirs()` returned false");
+                }
+            } catch (Exception e) {
+                throw new JacocoToCoberturaException("Output file directory " + outputDirectory.getAbsolutePath()
+                        + " does not exist and couldn't be created, error: " + e.getMessage());
+            }
+        }
+
+        log.info("Calculated configuration:");
+        inputFiles.forEach(inputFile -> log.info("  input: " + inputFile));
+        if (classDirectories != null) {
+            classDirectories.forEach(classDirectory -> log.info("  classes: " + classDirectory));
+        }
+        log.info("  output: " + outputFile);
+        log.info("  includes: " + filter.getIncludes());
+        log.info("  excludes: " + filter.getExcludes());
+        if (filter.getChangedFiles() != null) {
+            log.info("  changedFiles: " + filter.getChangedFiles());
+        }
+        log.info("  splitByPackage: " + splitByPackage);
+        log.info("  maxOutputBytes: " + maxOutputBytes);
+        log.info("  parser: " + parser);
+        log.info("  writer: " + writer);
+        log.info("  compression: " + compression);
+        log.info("  threads: " + threads);
+        log.info("  incremental: " + incremental);
+        log.info("  writeMetrics: " + writeMetrics);
+        log.info("  shareSerializers: " + shareSerializers);
+        log.info("  maxMemoryBytes: " + maxMemoryBytes);
+        log.info("sourceDirs:");
+        sourceDirectories.forEach(sourceDir -> log.info(" - " + sourceDir));
+
+        output = new CoberturaOutput(compression, outputFile);
+        File fingerprintFile = new File(outputFile.getPath() + ".fingerprint");
+        previousFingerprints = incremental ? Fingerprints.load(fingerprintFile) : new Fingerprints();
+        fingerprints = new Fingerprints();
+        fingerprints.put(Fingerprints.VERSION, pluginVersion);
+        fingerprints.put(Fingerprints.CONFIGURATION, configuration());
+        fingerprints.put(Fingerprints.INPUT, incremental ? Fingerprints.hashFiles(inputs()) : null);
+        if (incremental && fingerprints.matches(previousFingerprints, Fingerprints.VERSION,
+                Fingerprints.CONFIGURATION, Fingerprints.INPUT) && outputExists()) {
+            log.info("Cobertura report is up to date, skipping conversion");
+            return;
+        }
+        // the stored fingerprints no longer describe the output once it is being rewritten
+        Files.deleteIfExists(fingerprintFile.toPath());
+
+        metrics = new ConversionMetrics();
+        if (strings == null) {
+            strings = new StringPool();
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            try {
+                convert();
+            } finally {
+                // completes the zip archive
+                output.close();
+            }
+            deleteStalePackageReports();
+            deleteStaleShards();
+            if (incremental) {
+                fingerprints.store(fingerprintFile);
+            }
+            metrics.finish();
+            metrics.log(log);
+            if (writeMetrics) {
+                File metricsFile = metricsFile();
+                metrics.write(metricsFile);
+                log.info("Conversion metrics written to " + metricsFile);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * @return every file the output is read from, the analyzed classes of execution data and the list of changed
+     *         files included
+     */
+    private List<File> inputs() throws IOException {
+        List<File> inputs = new ArrayList<>(inputFiles);
+        if (classDirectories != null) {
+            inputs.addAll(ExecutionDataReader.classFiles(classDirectories));
+        }
+        if (filter.getChangedFiles() != null) {
+            inputs.add(filter.getChangedFiles().getFile());
+        }
+        return inputs;
+    }
+
+    /**
+     * Everything besides the input the output depends on.
+     */
+    private String configuration() {
+        return "sourceDirectories=" + sourceDirectories + ", splitByPackage=" + splitByPackage
+                + ", maxOutputBytes=" + maxOutputBytes + ", writer=" + writer + ", compression=" + compression
+                + ", " + filter;
+    }
+
+    private File metricsFile() {
+        return new File(outputFile.getPath() + ".metrics.json");
+    }
+
+    /**
+     * @return whether the whole output of the last run is still there, the metrics included when they are written
+     */
+    private boolean outputExists() {
+        if (writeMetrics && !metricsFile().isFile()) {
+            return false;
+        }
+        if (maxOutputBytes > 0 && !output.isArchive()) {
+            String shards = previousFingerprints.get(Fingerprints.SHARDS);
+            if (shards == null) {
+                return false;
+            }
+            for (int shard = 1; shard <= Integer.parseInt(shards); shard++) {
+                if (!output.file(CoberturaWriter.Shards.shardFile(outputFile, shard)).isFile()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!splitByPackage || output.isArchive()) {
+            return output.file(outputFile).isFile();
+        }
+        for (String packageName : previousFingerprints.packageNames()) {
+            if (!output.file(packageOutputFile(packageName)).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the package reports of a previous run whose packages are gone.
+     */
+    private void deleteStalePackageReports() throws IOException {
+        if (output.isArchive()) {
+            // the archive is written from scratch every time
+            return;
+        }
+        Set<String> stale = previousFingerprints.packageNames();
+        stale.removeAll(fingerprints.packageNames());
+        for (String packageName : stale) {
+            File packageOut = output.file(packageOutputFile(packageName));
+            if (Files.deleteIfExists(packageOut.toPath())) {
+                log.info("Stale Cobertura report for package " + packageName + " deleted: " + packageOut);
+            }
+        }
+    }
+
+    /**
+     * Deletes the shards of a previous run which packed the packages into more shards.
+     */
+    private void deleteStaleShards() throws IOException {
+        String shards = fingerprints.get(Fingerprints.SHARDS);
+        if (output.isArchive() || shards == null) {
+            return;
+        }
+        int shard = Integer.parseInt(shards) + 1;
+        File shardOut = output.file(CoberturaWriter.Shards.shardFile(outputFile, shard));
+        while (Files.deleteIfExists(shardOut.toPath())) {
+            log.info("Stale Cobertura report shard deleted: " + shardOut);
+            shardOut = output.file(CoberturaWriter.Shards.shardFile(outputFile, ++shard));
+        }
+    }
+
+    private void convert() throws JacocoToCoberturaException, IOException {
+        if (maxOutputBytes > 0) {
+            writeShards();
+        } else if (splitByPackage) {
+            if (!"persister".equals(parser)) {
+                streamPackageReports();
+            } else {
+                Jacoco.Report jacocoData = loadJacocoData();
+                PackageReports reports = new PackageReports();
+                Stream.concat(jacocoData.getPackages().stream(),
+                        jacocoData.getGroups().stream().flatMap(group -> group.getPackages().stream()))
+                        .forEach(packageElement -> reports.submit(jacocoData, packageElement));
+                reports.finish();
+            }
+        } else {
+            if ("persister".equals(parser)) {
+                writeCobertura(outputFile, loadJacocoData(), pool);
+            } else if ("stream".equals(writer)) {
+                streamCoberturaData(outputFile, sourceDirectories);
+            } else {
+                writeCoberturaData(outputFile, streamData(sourceDirectories));
+            }
+            log.info("Cobertura report generated at " + output.file(outputFile));
+        }
+    }
+
+    /**
+     * Spools every package as soon as it has been read and packs the packages into reports within
+     * {@code maxOutputBytes} once all of them are known.
+     */
+    @SuppressWarnings("try")
+    private void writeShards() throws JacocoToCoberturaException, IOException {
+        String outputPath = outputFile.getCanonicalPath();
+        try (CoberturaWriter.Shards shards = new CoberturaWriter.Shards(outputFile, maxOutputBytes, pool)) {
+            shards.setMetrics(metrics);
+            shards.setStrings(strings);
+            shards.setMaxPendingBytes(maxMemoryBytes);
+            Jacoco.Report[] report = new Jacoco.Report[1];
+            JacocoReader.Handler handler = new JacocoReader.Handler() {
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                    try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE)) {
+                        shards.writePackage(packageElement);
+                    } catch (Exception e) {
+                        throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputPath
+                                + "` error: `" + e.getMessage() + "`");
+                    }
+                }
+
+                @Override
+                public void endReport(Jacoco.Report jacocoData) {
+                    report[0] = jacocoData;
+                }
+            };
+            if ("persister".equals(parser)) {
+                Jacoco.Report jacocoData = loadJacocoData();
+                Stream.concat(jacocoData.getPackages().stream(),
+                        jacocoData.getGroups().stream().flatMap(group -> group.getPackages().stream()))
+                        .forEach(packageElement -> handler.packageElement(null, packageElement));
+                report[0] = jacocoData;
+            } else {
+                readJacocoData(handler);
+            }
+
+            List<File> files;
+            try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE)) {
+                for (String packageName : shards.oversizedPackages(report[0], sourceDirectories)) {
+                    log.warn("Package " + packageName + " alone exceeds maxOutputBytes, its report is larger");
+                }
+                files = shards.finish(report[0], sourceDirectories, outputFile, output);
+            }
+            fingerprints.put(Fingerprints.SHARDS, String.valueOf(files.size()));
+            files.forEach(file -> log.info("Cobertura report shard generated at " + (output.isArchive()
+                    ? output.getArchiveFile() + " (" + file.getName() + ")" : output.file(file))));
+        } catch (JacocoToCoberturaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputPath + "` error: `"
+                    + e.getMessage() + "`");
+        }
+    }
+
+    /**
+     * Writes one report per package as soon as the package has been read, its data is released once its report
+     * is written.
+     */
+    private void streamPackageReports() throws JacocoToCoberturaException {
+        PackageReports reports = new PackageReports();
+        try {
+            readJacocoData(new JacocoReader.Handler() {
+                private Jacoco.Report jacocoData;
+
+                @Override
+                public void startReport(Jacoco.Report report) {
+                    jacocoData = report;
+                }
+
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                    reports.submit(jacocoData, packageElement);
+                }
+            });
+        } catch (JacocoToCoberturaException e) {
+            reports.cancel();
+            throw e;
+        } catch (Exception e) {
+            reports.cancel();
+            throw new JacocoToCoberturaException("Loading Jacoco report error: `" + e.getMessage() + "`");
+        }
+        reports.finish();
+    }
+
+    /**
+     * Writes one report per package, concurrently on the pool when there is one. At most two reports per thread
+     * are pending at a time. A failing package does not stop the others, the failures are reported together once
+     * all packages are done.
+     */
+    private class PackageReports {
+        private final Deque<Map.Entry<String, Future<File>>> pending = new ArrayDeque<>();
+        private final List<String> failures = new ArrayList<>();
+        private int count;
+
+        void submit(Jacoco.Report jacocoData, Jacoco.PackageElement packageElement) {
+            String packageName = packageElement.getName().replace('/', '.');
+            Callable<File> task = metrics.timed(ConversionMetrics.WRITE,
+                    () -> writePackageReport(jacocoData, packageElement));
+            pending.add(Map.entry(packageName, pool != null ? pool.submit(task) : call(task)));
+            count++;
+            while (pending.size() > (pool != null ? 2 * threads : 0)) {
+                complete(pending.remove());
+            }
+        }
+
+        void finish() throws JacocoToCoberturaException {
+            while (!pending.isEmpty()) {
+                complete(pending.remove());
+            }
+            if (!failures.isEmpty()) {
+                throw new JacocoToCoberturaException("Writing Cobertura reports failed for " + failures.size()
+                        + " of " + count + " packages: " + String.join(", ", failures));
+            }
+        }
+
+        void cancel() {
+            pending.forEach(result -> result.getValue().cancel(true));
+            pending.clear();
+        }
+
+        private void complete(Map.Entry<String, Future<File>> result) {
+            String packageName = result.getKey();
+            try {
+                File packageOut = result.getValue().get();
+                if (unchangedPackages.contains(packageName)) {
+                    log.info("Cobertura report for package " + packageName + " is up to date at " + packageOut);
+                } else {
+                    log.info("Cobertura report for package " + packageName + " generated at " + packageOut);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new JacocoToCoberturaException("Writing Cobertura reports per package interrupted", e);
+            } catch (ExecutionException e) {
+                log.error("Cobertura report for package " + packageName + " failed: " + e.getCause().getMessage());
+                failures.add(packageName);
+            }
+        }
+    }
+
+    private File writePackageReport(Jacoco.Report jacocoData, Jacoco.PackageElement packageElement)
+            throws JacocoToCoberturaException, IOException {
+        String packageName = packageElement.getName().replace('/', '.');
+        File packageOut = packageOutputFile(packageName);
+        if (incremental) {
+            String fingerprint = Fingerprints.hashPackage(fingerprints.get(Fingerprints.VERSION) + "\n"
+                    + fingerprints.get(Fingerprints.CONFIGURATION) + "\n" + jacocoData.timestamp(), packageElement);
+            fingerprints.putPackage(packageName, fingerprint);
+            // an archive is written from scratch, so it needs every package
+            if (fingerprint.equals(previousFingerprints.getPackage(packageName)) && !output.isArchive()
+                    && output.file(packageOut).isFile()) {
+                unchangedPackages.add(packageName);
+                return output.file(packageOut);
+            }
+        }
+        Jacoco.Report packageData = jacocoData.copyReportWithPackage(jacocoData, packageElement);
+        // packages are already spread over the pool, a single package is written by a single thread
+        writeCobertura(packageOut, packageData, null);
+        return output.file(packageOut);
+    }
+
+    private File packageOutputFile(String packageName) {
+        return CoberturaOutput.suffixedFile(outputFile, packageName);
+    }
+
+    private static <T> Future<T> call(Callable<T> task) {
+        try {
+            return CompletableFuture.completedFuture(task.call());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void writeCobertura(File outputFile, Jacoco.Report jacocoData, ForkJoinPool pool)
+            throws JacocoToCoberturaException, IOException {
+        if ("persister".equals(writer)) {
+            writeCoberturaData(outputFile, transformData(jacocoData, sourceDirectories, pool));
+        } else {
+            try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE);
+                    OutputStream out = output.open(outputFile)) {
+                CoberturaWriter.write(out, jacocoData, sourceDirectories, pool, metrics, strings);
+            } catch (Exception e) {
+                throw new JacocoToCoberturaException("Writing Cobertura Data to file `"
+                        + outputFile.getCanonicalPath() + "` error: `" + e.getMessage() + "`");
+            }
+        }
+    }
+
+    /**
+     * Reads the input package by package, several inputs are merged into one report. Execution data is analyzed
+     * instead of parsed, {@code parser} does not apply to it.
+     */
+    @SuppressWarnings("try")
+    private void readJacocoData(JacocoReader.Handler handler) throws IOException, XMLStreamException {
+        JacocoReader.Handler counting = new JacocoReader.Handler() {
+            @Override
+            public void startReport(Jacoco.Report report) {
+                handler.startReport(report);
+            }
+
+            @Override
+            public boolean acceptPackage(String name) {
+                return handler.acceptPackage(name);
+            }
+
+            @Override
+            public boolean acceptClass(String packageName, String name, String sourcefilename) {
+                return handler.acceptClass(packageName, name, sourcefilename);
+            }
+
+            @Override
+            public boolean acceptSourceFile(String packageName, String name) {
+                return handler.acceptSourceFile(packageName, name);
+            }
+
+            @Override
+            public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                metrics.count(packageElement);
+                strings.intern(packageElement);
+                handler.packageElement(group, packageElement);
+            }
+
+            @Override
+            public void endReport(Jacoco.Report report) {
+                handler.endReport(report);
+            }
+        };
+        // filtered packages are neither counted nor interned
+        JacocoReader.Handler filtered = filter.filter(counting);
+        JacocoReader.Engine engine = "mapped".equals(parser) ? JacocoScanner::read : JacocoReader::read;
+        try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.READ)) {
+            if (classDirectories != null) {
+                ExecutionDataReader.read(inputFiles, classDirectories, filtered);
+            } else if (inputFiles.size() == 1) {
+                engine.read(inputFiles.get(0), filtered);
+            } else {
+                ReportMerger.read(inputFiles, filtered, engine, outputFile.getAbsoluteFile().getParentFile(),
+                        maxMemoryBytes);
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private Jacoco.Report loadJacocoData() throws JacocoToCoberturaException {
+        try {
+            if ("persister".equals(parser) && classDirectories == null && inputFiles.size() == 1) {
+                Jacoco.Report report;
+                try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.READ)) {
+                    Serializer serializer = Serializers.reader(shareSerializers);
+                    try (InputStream in = JacocoReader.open(inputFiles.get(0))) {
+                        report = serializer.read(Jacoco.Report.class, in);
+                    }
+                }
+                filter.apply(report);
+                metrics.count(report);
+                strings.intern(report);
+                return report;
+            }
+            // execution data and merging several inputs always use a streaming reader, it reads package by package
+            JacocoReader.Collector collector = new JacocoReader.Collector();
+            readJacocoData(collector);
+            return collector.getReport();
+        } catch (JacocoToCoberturaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JacocoToCoberturaException("Loading Jacoco report error: `" + e.getMessage() + "`");
+        }
+    }
+
+    /**
+     * Reads and transforms the report package by package, only the JaCoCo data of the current package is kept.
+     */
+    @SuppressWarnings("try")
+    private Cobertura.Coverage streamData(Collection<String> sources)
+            throws JacocoToCoberturaException {
+        List<Future<Cobertura.Package>> packages = new ArrayList<>();
+        Jacoco.Report[] report = new Jacoco.Report[1];
+        try {
+            readJacocoData(new JacocoReader.Handler() {
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                    packages.add(transformPackage(packageElement));
+                }
+
+                @Override
+                public void endReport(Jacoco.Report jacocoData) {
+                    report[0] = jacocoData;
+                }
+            });
+        } catch (Exception e) {
+            packages.forEach(future -> future.cancel(true));
+            throw new JacocoToCoberturaException("Loading Jacoco report error: `" + e.getMessage() + "`");
+        }
+
+        try {
+            List<Cobertura.Package> transformed = new ArrayList<>(packages.size());
+            for (Future<Cobertura.Package> future : packages) {
+                transformed.add(future.get());
+            }
+            try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.TRANSFORM)) {
+                return new Cobertura.Coverage(report[0], sources, transformed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JacocoToCoberturaException("Transforming Jacoco Data to Cobertura interrupted", e);
+        } catch (ExecutionException e) {
+            throw new JacocoToCoberturaException(
+                    "Transforming Jacoco Data to Cobertura error: `" + e.getCause().getMessage() + "`");
+        }
+    }
+
+    private Future<Cobertura.Package> transformPackage(Jacoco.PackageElement packageElement) {
+        Callable<Cobertura.Package> task = metrics.timed(ConversionMetrics.TRANSFORM,
+                () -> new Cobertura.Package(packageElement, strings));
+        return pool != null ? pool.submit(task) : call(task);
+    }
+
+    /**
+     * Reads the report and writes each package as soon as it is complete, neither the JaCoCo nor the Cobertura
+     * object tree of the whole report is ever built.
+     */
+    @SuppressWarnings("try")
+    private void streamCoberturaData(File outputFile, Collection<String> sources)
+            throws JacocoToCoberturaException, IOException {
+        String outputPath = outputFile.getCanonicalPath();
+        try (CoberturaWriter.Spool spool = new CoberturaWriter.Spool(outputFile, pool)) {
+            spool.setMetrics(metrics);
+            spool.setStrings(strings);
+            spool.setMaxPendingBytes(maxMemoryBytes);
+            readJacocoData(new JacocoReader.Handler() {
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                    try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE)) {
+                        spool.writePackage(packageElement);
+                    } catch (Exception e) {
+                        throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputPath
+                                + "` error: `" + e.getMessage() + "`");
+                    }
+                }
+
+                @Override
+                public void endReport(Jacoco.Report jacocoData) {
+                    try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE);
+                            OutputStream out = output.open(outputFile)) {
+                        spool.finish(jacocoData, sources, out);
+                    } catch (Exception e) {
+                        throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputPath
+                                + "` error: `" + e.getMessage() + "`");
+                    }
+                }
+            });
+        } catch (JacocoToCoberturaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JacocoToCoberturaException("Loading Jacoco report error: `" + e.getMessage() + "`");
+        }
+    }
+
+    @SuppressWarnings("try")
+    private Cobertura.Coverage transformData(Jacoco.Report jacocoData, Collection<String> sources,
+            ForkJoinPool pool) throws JacocoToCoberturaException {
+        try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.TRANSFORM)) {
+            return pool != null ? new Cobertura.Coverage(jacocoData, sources, pool, strings)
+                    : new Cobertura.Coverage(jacocoData, sources, strings);
+        } catch (Exception e) {
+            throw new JacocoToCoberturaException(
+                    "Transforming Jacoco Data to Cobertura error: `" + e.getMessage() + "`");
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void writeCoberturaData(File outputFile, Cobertura.Coverage data)
+            throws JacocoToCoberturaException, IOException {
+        try (ConversionMetrics.Timer timer = metrics.time(ConversionMetrics.WRITE);
+                OutputStream out = output.open(outputFile)) {
+            Serializers.writer(shareSerializers).write(data, out);
+        } catch (Exception e) {
+            throw new JacocoToCoberturaException("Writing Cobertura Data to file `" + outputFile.getCanonicalPath()
+                    + "` error: `" + e.getMessage() + "`");
+        }
+    }
+
+}
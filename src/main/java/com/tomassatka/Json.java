@@ -0,0 +1,28 @@
+package com.tomassatka;
+
+/**
+ * Helpers for the JSON files written by hand: the batch summary, the conversion metrics and the coverage delta.
+ */
+class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @return {@code value} as a JSON string
+     */
+    static String string(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
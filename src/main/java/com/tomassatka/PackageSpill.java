@@ -0,0 +1,210 @@
+package com.tomassatka;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Temporary file holding JaCoCo packages in a compact binary form while they wait for the rest of their data, so
+ * the packages kept in memory stay below a ceiling however large the report is.
+ * <p>
+ * Packages are appended and read back by the position {@link #write} returned. The file is deleted when it is
+ * closed.
+ */
+class PackageSpill implements Closeable {
+
+    private final File spillFile;
+    private final FileChannel channel;
+    private long size;
+
+    /**
+     * @param directory the directory of the temporary file, the default temporary directory when {@code null}
+     */
+    PackageSpill(File directory) throws IOException {
+        this.spillFile = File.createTempFile("jacoco-packages", ".spill", directory);
+        this.channel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Roughly the heap a package takes, its line tables and methods dominate.
+     */
+    public static long estimatedBytes(Jacoco.PackageElement packageElement) {
+        long bytes = 128;
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            bytes += 192 + 160L * classElement.getMethods().size();
+        }
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            bytes += 192 + 20L * sourceFile.getLineTable().size();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the position to read the package back from
+     */
+    public long write(Jacoco.PackageElement packageElement) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            writePackage(out, packageElement);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.limit() - Integer.BYTES);
+
+        long position = size;
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer, size);
+        }
+        return position;
+    }
+
+    public Jacoco.PackageElement read(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, position);
+        ByteBuffer buffer = ByteBuffer.allocate(length.getInt(0));
+        readFully(buffer, position + Integer.BYTES);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()))) {
+            return readPackage(in);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + spillFile);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes spilled
+     */
+    public long size() {
+        return size;
+    }
+
+    private static void writePackage(DataOutputStream out, Jacoco.PackageElement packageElement)
+            throws IOException {
+        writeString(out, packageElement.getName());
+        writeCounters(out, packageElement.getCounterTable());
+        out.writeInt(packageElement.getClasses().size());
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            writeString(out, classElement.getName());
+            writeString(out, classElement.getSourcefilename());
+            writeCounters(out, classElement.getCounterTable());
+            out.writeInt(classElement.getMethods().size());
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                writeString(out, methodElement.getName());
+                writeString(out, methodElement.getDesc());
+                out.writeInt(methodElement.getLine() != null ? methodElement.getLine() : -1);
+                writeCounters(out, methodElement.getCounterTable());
+            }
+        }
+        out.writeInt(packageElement.getSourceFiles().size());
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            writeString(out, sourceFile.getName());
+            writeCounters(out, sourceFile.getCounterTable());
+            Jacoco.LineTable lines = sourceFile.getLineTable();
+            out.writeInt(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                out.writeInt(lines.getNr(i));
+                out.writeInt(lines.getMi(i));
+                out.writeInt(lines.getCi(i));
+                out.writeInt(lines.getMb(i));
+                out.writeInt(lines.getCb(i));
+            }
+        }
+    }
+
+    private static Jacoco.PackageElement readPackage(DataInputStream in) throws IOException {
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        packageElement.setName(readString(in));
+        readCounters(in, packageElement.getCounterTable());
+        int classes = in.readInt();
+        for (int c = 0; c < classes; c++) {
+            Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+            classElement.setName(readString(in));
+            classElement.setSourcefilename(readString(in));
+            readCounters(in, classElement.getCounterTable());
+            int methods = in.readInt();
+            for (int m = 0; m < methods; m++) {
+                Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+                methodElement.setName(readString(in));
+                methodElement.setDesc(readString(in));
+                int line = in.readInt();
+                methodElement.setLine(line >= 0 ? line : null);
+                readCounters(in, methodElement.getCounterTable());
+                classElement.getMethods().add(methodElement);
+            }
+            packageElement.getClasses().add(classElement);
+        }
+        int sourceFiles = in.readInt();
+        for (int s = 0; s < sourceFiles; s++) {
+            Jacoco.SourceFile sourceFile = new Jacoco.SourceFile();
+            sourceFile.setName(readString(in));
+            readCounters(in, sourceFile.getCounterTable());
+            int size = in.readInt();
+            Jacoco.LineTable lines = sourceFile.getLineTable();
+            for (int i = 0; i < size; i++) {
+                lines.add(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            }
+            lines.trim();
+            packageElement.getSourceFiles().add(sourceFile);
+        }
+        return packageElement;
+    }
+
+    private static void writeCounters(DataOutputStream out, Jacoco.CounterTable counters) throws IOException {
+        int present = 0;
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if (counters.has(type)) {
+                present |= 1 << type.ordinal();
+            }
+        }
+        out.writeByte(present);
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if (counters.has(type)) {
+                out.writeInt(counters.getMissed(type));
+                out.writeInt(counters.getCovered(type));
+            }
+        }
+    }
+
+    private static void readCounters(DataInputStream in, Jacoco.CounterTable counters) throws IOException {
+        int present = in.readUnsignedByte();
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if ((present & (1 << type.ordinal())) != 0) {
+                counters.add(type, in.readInt(), in.readInt());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            spillFile.delete();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Merges several JaCoCo reports, e.g. of the modules of a build, into one report which is handed to a
+ * {@link JacocoReader.Handler} package by package.
+ * <p>
+ * JaCoCo does not sort the packages of a report, so the reports are read twice: the first pass only counts how often
+ * every package occurs, the second one hands packages occurring once over as they are read and keeps only the
+ * packages occurring several times until their last occurrence has been merged in.
+ * <p>
+ * With a memory ceiling, the kept packages are spilled to a temporary file as soon as their estimated size exceeds
+ * it and read back when their next occurrence is merged in, so a merge of many large reports keeps at most about the
+ * ceiling in memory besides the package being merged.
+ * <p>
+ * The same class in several reports is the same bytecode run by different tests, so a line is covered when any report
+ * covers it. The line and branch counters of merged source files, classes and methods are counted again from the
+ * merged lines, those of a method being the lines the converted report lists under it, so the rates agree with the
+ * line hits. The other counters take the highest covered count and the highest total instead of adding them up.
+ * Package and report counters are the sums of the merged classes and packages.
+ */
+class ReportMerger {
+
+    public static void read(List<File> inputFiles, JacocoReader.Handler handler)
+            throws IOException, XMLStreamException {
+        read(inputFiles, handler, JacocoReader::read);
+    }
+
+    public static void read(List<File> inputFiles, JacocoReader.Handler handler, JacocoReader.Engine engine)
+            throws IOException, XMLStreamException {
+        read(inputFiles, handler, engine, null, 0);
+    }
+
+    /**
+     * @param spillDirectory the directory of the temporary file of the spilled packages, the default temporary
+     *                       directory when {@code null}
+     * @param maxMemoryBytes the estimated size of the kept packages above which they are spilled, {@code 0} keeps all
+     *                       in memory
+     */
+    public static void read(List<File> inputFiles, JacocoReader.Handler handler, JacocoReader.Engine engine,
+            File spillDirectory, long maxMemoryBytes) throws IOException, XMLStreamException {
+        Map<String, Integer> occurrences = new HashMap<>();
+        Jacoco.Report merged = new Jacoco.Report();
+        for (File inputFile : inputFiles) {
+            engine.read(inputFile, new JacocoReader.Handler() {
+                @Override
+                public void startReport(Jacoco.Report report) {
+                    if (merged.getName() == null) {
+                        merged.setName(report.getName());
+                    }
+                    merged.getSessionInfos().addAll(report.getSessionInfos());
+                }
+
+                @Override
+                public boolean acceptPackage(String name) {
+                    if (handler.acceptPackage(name)) {
+                        occurrences.merge(name, 1, Integer::sum);
+                    }
+                    return false;
+                }
+
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                }
+            });
+        }
+
+        handler.startReport(merged);
+        Pending pending = new Pending(spillDirectory, maxMemoryBytes);
+        try {
+            for (File inputFile : inputFiles) {
+                merge(inputFile, handler, engine, occurrences, merged, pending);
+            }
+        } finally {
+            pending.close();
+        }
+        handler.endReport(merged);
+    }
+
+    private static void merge(File inputFile, JacocoReader.Handler handler, JacocoReader.Engine engine,
+            Map<String, Integer> occurrences, Jacoco.Report merged, Pending pending)
+            throws IOException, XMLStreamException {
+        try {
+            engine.read(inputFile, new JacocoReader.Handler() {
+                @Override
+                public boolean acceptPackage(String name) {
+                    return occurrences.containsKey(name);
+                }
+
+                @Override
+                public boolean acceptClass(String packageName, String name, String sourcefilename) {
+                    return handler.acceptClass(packageName, name, sourcefilename);
+                }
+
+                @Override
+                public boolean acceptSourceFile(String packageName, String name) {
+                    return handler.acceptSourceFile(packageName, name);
+                }
+
+                @Override
+                public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+                    String name = packageElement.getName();
+                    int remaining = occurrences.merge(name, -1, Integer::sum);
+                    if (remaining == 0 && !pending.contains(name)) {
+                        merged.getCounterTable().accumulate(packageElement.getCounterTable());
+                        handler.packageElement(group, packageElement);
+                        return;
+                    }
+                    Jacoco.PackageElement mergedPackage;
+                    try {
+                        Jacoco.PackageElement previous = pending.remove(name);
+                        mergedPackage = previous != null ? mergePackages(previous, packageElement) : packageElement;
+                        if (remaining > 0) {
+                            pending.put(mergedPackage);
+                            return;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    merged.getCounterTable().accumulate(mergedPackage.getCounterTable());
+                    handler.packageElement(null, mergedPackage);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The packages waiting for their next occurrence, in memory or spilled once the estimated size of those in memory
+     * exceeds the ceiling.
+     */
+    private static class Pending {
+        private final File spillDirectory;
+        private final long maxMemoryBytes;
+        private final Map<String, Jacoco.PackageElement> packages = new HashMap<>();
+        private final Map<String, Long> sizes = new HashMap<>();
+        private final Map<String, Long> spilled = new HashMap<>();
+        private PackageSpill spill;
+        private long bytes;
+
+        Pending(File spillDirectory, long maxMemoryBytes) {
+            this.spillDirectory = spillDirectory;
+            this.maxMemoryBytes = maxMemoryBytes;
+        }
+
+        boolean contains(String name) {
+            return packages.containsKey(name) || spilled.containsKey(name);
+        }
+
+        Jacoco.PackageElement remove(String name) throws IOException {
+            Jacoco.PackageElement packageElement = packages.remove(name);
+            if (packageElement != null) {
+                bytes -= sizes.remove(name);
+                return packageElement;
+            }
+            Long position = spilled.remove(name);
+            return position != null ? spill.read(position) : null;
+        }
+
+        void put(Jacoco.PackageElement packageElement) throws IOException {
+            long size = maxMemoryBytes > 0 ? PackageSpill.estimatedBytes(packageElement) : 0;
+            if (maxMemoryBytes > 0 && bytes + size > maxMemoryBytes) {
+                if (spill == null) {
+                    spill = new PackageSpill(spillDirectory);
+                }
+                spilled.put(packageElement.getName(), spill.write(packageElement));
+                return;
+            }
+            packages.put(packageElement.getName(), packageElement);
+            sizes.put(packageElement.getName(), size);
+            bytes += size;
+        }
+
+        void close() throws IOException {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
+
+    static Jacoco.PackageElement mergePackages(Jacoco.PackageElement first, Jacoco.PackageElement second) {
+        Jacoco.PackageElement merged = new Jacoco.PackageElement();
+        merged.setName(first.getName());
+
+        Map<String, Jacoco.ClassElement> classes = new LinkedHashMap<>();
+        for (Jacoco.ClassElement classElement : first.getClasses()) {
+            classes.merge(classElement.getName(), classElement, ReportMerger::mergeClasses);
+        }
+        for (Jacoco.ClassElement classElement : second.getClasses()) {
+            classes.merge(classElement.getName(), classElement, ReportMerger::mergeClasses);
+        }
+        merged.getClasses().addAll(classes.values());
+
+        Map<String, Jacoco.SourceFile> sourceFiles = new LinkedHashMap<>();
+        for (Jacoco.SourceFile sourceFile : first.getSourceFiles()) {
+            sourceFiles.merge(sourceFile.getName(), sourceFile, ReportMerger::mergeSourceFiles);
+        }
+        for (Jacoco.SourceFile sourceFile : second.getSourceFiles()) {
+            sourceFiles.merge(sourceFile.getName(), sourceFile, ReportMerger::mergeSourceFiles);
+        }
+        merged.getSourceFiles().addAll(sourceFiles.values());
+
+        countLines(merged, sourceFiles);
+        for (Jacoco.ClassElement classElement : merged.getClasses()) {
+            merged.getCounterTable().accumulate(classElement.getCounterTable());
+        }
+        return merged;
+    }
+
+    /**
+     * Counts the line and branch counters of the source files, classes and methods of a merged package from its
+     * merged lines. Classes whose source file is not part of the package keep their merged counters.
+     */
+    private static void countLines(Jacoco.PackageElement packageElement, Map<String, Jacoco.SourceFile> sourceFiles) {
+        for (Jacoco.SourceFile sourceFile : sourceFiles.values()) {
+            LineCounts counts = new LineCounts();
+            counts.add(sourceFile.getLineTable());
+            counts.setTo(sourceFile.getCounterTable());
+        }
+        Cobertura.LineIndex index = new Cobertura.LineIndex(packageElement);
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            String sourcefilename = classElement.getSourcefilename();
+            if (sourcefilename == null || !sourceFiles.containsKey(sourcefilename)) {
+                continue;
+            }
+            LineCounts classCounts = new LineCounts();
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                Jacoco.LineTable lines = index.linesForMethod(methodElement, sourcefilename);
+                LineCounts methodCounts = new LineCounts();
+                methodCounts.add(lines);
+                methodCounts.setTo(methodElement.getCounterTable());
+                classCounts.add(lines);
+            }
+            classCounts.setTo(classElement.getCounterTable());
+        }
+    }
+
+    /**
+     * Line and branch counts of lines, a line added several times counts once.
+     */
+    private static class LineCounts {
+        private final BitSet counted = new BitSet();
+        private int missedLines;
+        private int coveredLines;
+        private int missedBranches;
+        private int coveredBranches;
+
+        void add(Jacoco.LineTable lines) {
+            for (int i = 0; i < lines.size(); i++) {
+                if (counted.get(lines.getNr(i))) {
+                    continue;
+                }
+                counted.set(lines.getNr(i));
+                if (lines.getCi(i) > 0) {
+                    coveredLines++;
+                } else {
+                    missedLines++;
+                }
+                missedBranches += lines.getMb(i);
+                coveredBranches += lines.getCb(i);
+            }
+        }
+
+        /**
+         * Replaces the line counter and the branch counter, the latter only when there are branches or it was
+         * reported, as JaCoCo leaves it out otherwise.
+         */
+        void setTo(Jacoco.CounterTable counters) {
+            counters.set(Jacoco.CounterType.LINE, missedLines, coveredLines);
+            if (missedBranches + coveredBranches > 0 || counters.has(Jacoco.CounterType.BRANCH)) {
+                counters.set(Jacoco.CounterType.BRANCH, missedBranches, coveredBranches);
+            }
+        }
+    }
+
+    private static Jacoco.ClassElement mergeClasses(Jacoco.ClassElement first, Jacoco.ClassElement second) {
+        Jacoco.ClassElement merged = new Jacoco.ClassElement();
+        merged.setName(first.getName());
+        merged.setSourcefilename(first.getSourcefilename() != null ? first.getSourcefilename()
+                : second.getSourcefilename());
+        mergeCounters(merged.getCounterTable(), first.getCounterTable(), second.getCounterTable());
+
+        Map<String, Jacoco.MethodElement> methods = new LinkedHashMap<>();
+        for (Jacoco.MethodElement methodElement : first.getMethods()) {
+            methods.merge(methodKey(methodElement), methodElement,
+                    ReportMerger::mergeMethods);
+        }
+        for (Jacoco.MethodElement methodElement : second.getMethods()) {
+            methods.merge(methodKey(methodElement), methodElement,
+                    ReportMerger::mergeMethods);
+        }
+        merged.getMethods().addAll(methods.values());
+        return merged;
+    }
+
+    private static String methodKey(Jacoco.MethodElement methodElement) {
+        return methodElement.getName() + methodElement.getDesc() + ":" + methodElement.getLine();
+    }
+
+    private static Jacoco.MethodElement mergeMethods(Jacoco.MethodElement first, Jacoco.MethodElement second) {
+        Jacoco.MethodElement merged = new Jacoco.MethodElement();
+        merged.setName(first.getName());
+        merged.setDesc(first.getDesc());
+        merged.setLine(first.getLine() != null ? first.getLine() : second.getLine());
+        mergeCounters(merged.getCounterTable(), first.getCounterTable(), second.getCounterTable());
+        return merged;
+    }
+
+    private static Jacoco.SourceFile mergeSourceFiles(Jacoco.SourceFile first, Jacoco.SourceFile second) {
+        Jacoco.SourceFile merged = new Jacoco.SourceFile();
+        merged.setName(first.getName());
+        mergeCounters(merged.getCounterTable(), first.getCounterTable(), second.getCounterTable());
+
+        Jacoco.LineTable lines = merged.getLineTable();
+        Jacoco.LineTable a = first.getLineTable();
+        Jacoco.LineTable b = second.getLineTable();
+        int[] aOrder = order(a);
+        int[] bOrder = order(b);
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            int ai = i < a.size() ? aOrder[i] : -1;
+            int bj = j < b.size() ? bOrder[j] : -1;
+            if (bj < 0 || ai >= 0 && a.getNr(ai) < b.getNr(bj)) {
+                lines.add(a, ai);
+                i++;
+            } else if (ai < 0 || b.getNr(bj) < a.getNr(ai)) {
+                lines.add(b, bj);
+                j++;
+            } else {
+                int ci = Math.max(a.getCi(ai), b.getCi(bj));
+                int instructions = Math.max(a.getMi(ai) + a.getCi(ai), b.getMi(bj) + b.getCi(bj));
+                int cb = Math.max(a.getCb(ai), b.getCb(bj));
+                int branches = Math.max(a.getMb(ai) + a.getCb(ai), b.getMb(bj) + b.getCb(bj));
+                lines.add(a.getNr(ai), instructions - ci, ci, branches - cb, cb);
+                i++;
+                j++;
+            }
+        }
+        lines.trim();
+        return merged;
+    }
+
+    /**
+     * Row indexes of the table in line number order, JaCoCo writes lines in that order already.
+     */
+    private static int[] order(Jacoco.LineTable lines) {
+        int[] order = new int[lines.size()];
+        boolean sorted = true;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            sorted &= i == 0 || lines.getNr(i - 1) <= lines.getNr(i);
+        }
+        if (!sorted) {
+            order = Arrays.stream(order).boxed()
+                    .sorted((x, y) -> Integer.compare(lines.getNr(x), lines.getNr(y)))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return order;
+    }
+
+    /**
+     * Merges the counters of the same element found in two reports.
+     */
+    private static void mergeCounters(Jacoco.CounterTable merged, Jacoco.CounterTable first,
+            Jacoco.CounterTable second) {
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if (first.has(type) || second.has(type)) {
+                int covered = Math.max(first.getCovered(type), second.getCovered(type));
+                int total = Math.max(first.getMissed(type) + first.getCovered(type),
+                        second.getMissed(type) + second.getCovered(type));
+                merged.add(type, total - covered, covered);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.tomassatka;
+
+import org.simpleframework.xml.Serializer;
+import org.simpleframework.xml.core.Persister;
+import org.simpleframework.xml.stream.Format;
+
+/**
+ * The Simple XML serializers of the {@code persister} parser and writer.
+ * <p>
+ * A {@link Persister} scans the annotations of every class it reads or writes once and keeps the result, which
+ * takes longer than reading or writing a small report. The shared instances keep the scanned classes for as long as
+ * the plugin is loaded, for all packages of a split report, all reports of a build and, under the Maven daemon, all
+ * builds. A {@link Persister} may be used by several threads at the same time, they are created on first use.
+ */
+class Serializers {
+
+    /**
+     * @param shared whether to return the shared instance instead of a new one
+     * @return the serializer reading JaCoCo reports
+     */
+    public static Serializer reader(boolean shared) {
+        return shared ? Reader.INSTANCE : new Persister();
+    }
+
+    /**
+     * @param shared whether to return the shared instance instead of a new one
+     * @return the serializer writing Cobertura reports
+     */
+    public static Serializer writer(boolean shared) {
+        return shared ? Writer.INSTANCE : new Persister(new Format(CoberturaWriter.PROLOG));
+    }
+
+    // holders, so each instance is created by the first conversion using it
+    private static class Reader {
+        static final Serializer INSTANCE = new Persister();
+    }
+
+    private static class Writer {
+        static final Serializer INSTANCE = new Persister(new Format(CoberturaWriter.PROLOG));
+    }
+}
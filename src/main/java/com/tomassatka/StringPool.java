@@ -0,0 +1,99 @@
+package com.tomassatka;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the strings repeated all over a report, shared by everything one conversion creates. Safe
+ * to use from several threads.
+ * <p>
+ * Method names and descriptors such as {@code <init>} and {@code ()V} and the source file names, which every class
+ * and source file carries, are read as separate strings for every occurrence. The Cobertura class file names and
+ * condition coverages are built from a few distinct parts over and over. The pool keeps one instance of each, so a
+ * large report holds its distinct values instead of its occurrences.
+ */
+class StringPool {
+
+    /**
+     * Condition coverages are cached up to this number of branches per line, lines with more branches are rare.
+     */
+    private static final int MAX_CACHED_BRANCHES = 64;
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> filenames = new ConcurrentHashMap<>();
+    // racy but safe, strings are immutable and a value computed twice is equal
+    private final String[] conditionCoverages = new String[MAX_CACHED_BRANCHES * (MAX_CACHED_BRANCHES + 1)];
+    private final String[] percentages = new String[101];
+
+    /**
+     * @return the canonical instance equal to {@code value}, {@code null} for {@code null}
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * Replaces the names, descriptors and source file names of a package by their canonical instances.
+     */
+    public void intern(Jacoco.PackageElement packageElement) {
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            classElement.setSourcefilename(intern(classElement.getSourcefilename()));
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                methodElement.setName(intern(methodElement.getName()));
+                methodElement.setDesc(intern(methodElement.getDesc()));
+            }
+        }
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            sourceFile.setName(intern(sourceFile.getName()));
+        }
+    }
+
+    public void intern(Jacoco.Report report) {
+        report.getPackages().forEach(this::intern);
+        report.getGroups().forEach(group -> group.getPackages().forEach(this::intern));
+    }
+
+    /**
+     * @return the Cobertura file name of a class, {@code packageName/sourceFilename}
+     */
+    public String filename(String packageName, String sourceFilename) {
+        return filenames.computeIfAbsent(packageName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(sourceFilename, name -> packageName + "/" + name);
+    }
+
+    /**
+     * @return the condition coverage of a line, e.g. {@code 50% (1/2)}
+     */
+    public String conditionCoverage(int covered, int branches) {
+        if (branches > MAX_CACHED_BRANCHES || covered < 0 || covered > branches) {
+            return percentage(covered, branches) + " (" + covered + "/" + branches + ")";
+        }
+        int index = (branches - 1) * (MAX_CACHED_BRANCHES + 1) + covered;
+        String conditionCoverage = conditionCoverages[index];
+        if (conditionCoverage == null) {
+            conditionCoverage = percentage(covered, branches) + " (" + covered + "/" + branches + ")";
+            conditionCoverages[index] = conditionCoverage;
+        }
+        return conditionCoverage;
+    }
+
+    /**
+     * @return the covered share of the branches of a line, e.g. {@code 50%}
+     */
+    public String percentage(int covered, int branches) {
+        int percentage = (int) (100 * ((double) covered / branches));
+        if (percentage < 0 || percentage > 100) {
+            return percentage + "%";
+        }
+        String value = percentages[percentage];
+        if (value == null) {
+            value = percentage + "%";
+            percentages[percentage] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangedFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesSourceFilesByTheEndOfTheChangedPaths() throws Exception {
+        ChangedFiles changedFiles = load("module/src/main/java/com/example/Foo.java");
+
+        assertTrue(changedFiles.contains("com/example", "Foo.java"));
+        assertTrue(changedFiles.contains("example", "Foo.java"));
+        assertFalse(changedFiles.contains("com/example", "Bar.java"));
+        assertFalse(changedFiles.contains("com/other", "Foo.java"));
+        assertFalse(changedFiles.contains("com/example", null));
+    }
+
+    @Test
+    public void matchesOnlyAtDirectoryBoundaries() throws Exception {
+        ChangedFiles changedFiles = load("src/main/java/xcom/example/MyFoo.java");
+
+        assertFalse(changedFiles.contains("com/example", "MyFoo.java"));
+        assertFalse(changedFiles.contains("xcom/example", "Foo.java"));
+        assertFalse(changedFiles.containsPackage("com/example"));
+        assertTrue(changedFiles.containsPackage("xcom/example"));
+    }
+
+    @Test
+    public void matchesPackagesContainingAChangedPath() throws Exception {
+        ChangedFiles changedFiles = load("src/main/java/com/example/sub/Foo.java");
+
+        assertTrue(changedFiles.containsPackage("com/example/sub"));
+        assertFalse(changedFiles.containsPackage("com/example/other"));
+        // JaCoCo packages are not nested, the parent package contains no changed file
+        assertFalse(changedFiles.containsPackage("com/example"));
+    }
+
+    @Test
+    public void matchesTheDefaultPackage() throws Exception {
+        ChangedFiles changedFiles = load("src/main/java/Foo.java");
+
+        assertTrue(changedFiles.containsPackage(""));
+        assertTrue(changedFiles.containsPackage(null));
+        assertTrue(changedFiles.contains("", "Foo.java"));
+        assertTrue(changedFiles.contains(null, "Foo.java"));
+    }
+
+    @Test
+    public void normalizesAndSkipsLines() throws Exception {
+        ChangedFiles changedFiles = load("# changed by the merge request", "", "  ./src/com/example/Foo.java  ",
+                "src\\com\\example\\Bar.java", "src/com/example/Foo.java");
+
+        assertEquals(2, changedFiles.size());
+        assertTrue(changedFiles.contains("com/example", "Foo.java"));
+        assertTrue(changedFiles.contains("com/example", "Bar.java"));
+        assertFalse(changedFiles.containsPackage("# changed by the merge request"));
+    }
+
+    @Test(expected = JacocoToCoberturaException.class)
+    public void failsOnAMissingList() throws Exception {
+        ChangedFiles.load(new File(folder.getRoot(), "missing.txt"));
+    }
+
+    @Test
+    public void filtersTheClassesCompiledFromTheChangedFiles() throws Exception {
+        CoverageFilter filter = new CoverageFilter(List.of(), List.of(), load("src/main/java/com/example/Foo.java"));
+
+        assertTrue(filter.acceptPackage("com/example"));
+        assertFalse(filter.acceptPackage("com/other"));
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo$Inner", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example", "com/example/Bar", "Bar.java"));
+        assertTrue(filter.acceptSourceFile("com/example", "Foo.java"));
+        assertFalse(filter.acceptSourceFile("com/example", "Bar.java"));
+    }
+
+    private ChangedFiles load(String... lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), List.of(lines), StandardCharsets.UTF_8);
+        return ChangedFiles.load(file);
+    }
+}
@@ -0,0 +1,217 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class CoberturaWriterTest {
+
+    private static final Pattern PACKAGE = Pattern.compile("<package name=\"([^\"]+)\"");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheDocumentOfThePersister() throws Exception {
+        File classDirectory = Fixtures.classDirectory(folder.newFolder("classes"));
+        File execFile = Fixtures.execFile(classDirectory, folder.newFile("jacoco.exec"));
+        File reportFile = Fixtures.jacocoReport(execFile, classDirectory, folder.newFile("jacoco.xml"));
+
+        Document stream = parse(convert(reportFile, "stream"));
+        Document persister = parse(convert(reportFile, "persister"));
+
+        // Simple XML names the list class on <conditions>, the stream writer leaves it out
+        NodeList conditions = persister.getElementsByTagName("conditions");
+        assertTrue(conditions.getLength() > 0);
+        for (int i = 0; i < conditions.getLength(); i++) {
+            Element element = (Element) conditions.item(i);
+            assertTrue(element.hasAttribute("class"));
+            element.removeAttribute("class");
+        }
+        assertEquals(conditions.getLength(), stream.getElementsByTagName("conditions").getLength());
+        assertEquals(describe(persister.getDocumentElement()), describe(stream.getDocumentElement()));
+    }
+
+    @Test
+    public void packsPackagesIntoShardsWithinTheBudget() throws Exception {
+        File reportFile = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/p0:" + lines(40),
+                "com/example/p1:" + lines(10), "com/example/p2:" + lines(30), "com/example/p3:" + lines(20),
+                "com/example/p4:" + lines(35), "com/example/p5:" + lines(5));
+        long budget = convert(reportFile, 0).get(0).length() / 2;
+
+        List<File> shards = convert(reportFile, budget);
+
+        assertTrue("expected several shards, got " + shards.size(), shards.size() > 1);
+        assertTrue("expected packages to share shards, got " + shards.size(), shards.size() < 6);
+        List<String> packages = new ArrayList<>();
+        for (File shard : shards) {
+            assertTrue(shard + " exceeds " + budget + " bytes", shard.length() <= budget);
+            List<String> shardPackages = packages(shard);
+            assertEquals("packages of " + shard + " in document order",
+                    shardPackages.stream().sorted().collect(Collectors.toList()), shardPackages);
+            packages.addAll(shardPackages);
+        }
+        packages.sort(null);
+        assertEquals(List.of("com/example/p0", "com/example/p1", "com/example/p2", "com/example/p3",
+                "com/example/p4", "com/example/p5"), packages);
+    }
+
+    @Test
+    public void writesAnOversizedPackageIntoAShardOfItsOwn() throws Exception {
+        File reportFile = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/p0:" + lines(10),
+                "com/example/big:" + lines(400), "com/example/p1:" + lines(10));
+        long budget = convert(Fixtures.writeReport(folder.newFile("small.xml"), "com/example/p0:" + lines(10),
+                "com/example/p1:" + lines(10)), 0).get(0).length() + 100;
+
+        List<File> shards = convert(reportFile, budget);
+
+        int oversized = 0;
+        for (File shard : shards) {
+            List<String> packages = packages(shard);
+            if (packages.contains("com/example/big")) {
+                assertEquals(List.of("com/example/big"), packages);
+                assertTrue(shard.length() > budget);
+                oversized++;
+            } else {
+                assertTrue(shard + " exceeds " + budget + " bytes", shard.length() <= budget);
+            }
+        }
+        assertEquals(1, oversized);
+    }
+
+    @Test
+    public void namesShardsAfterTheOutputFileName() throws Exception {
+        File reportFile = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/p0:" + lines(40),
+                "com/example/p1:" + lines(40), "com/example/p2:" + lines(40));
+        long budget = convert(reportFile, 0).get(0).length() / 2;
+
+        for (String name : new String[] {"reports.xml.d/cobertura", "reports.xml.d/cobertura.gz"}) {
+            List<File> shards = convert(reportFile, budget, name);
+
+            assertTrue(name + " gave " + shards, shards.size() > 1);
+            List<String> packages = new ArrayList<>();
+            for (File shard : shards) {
+                assertEquals("reports.xml.d", shard.getParentFile().getName());
+                packages.addAll(packages(shard));
+            }
+            assertEquals(List.of("com/example/p0", "com/example/p1", "com/example/p2"), packages);
+        }
+    }
+
+    @Test
+    public void insertsTheSuffixBeforeTheExtensionOfTheName() {
+        File directory = new File(folder.getRoot(), "reports.xml.d");
+
+        assertEquals(new File(directory, "cobertura-1.xml"),
+                CoberturaOutput.suffixedFile(new File(directory, "cobertura.xml"), "1"));
+        assertEquals(new File(directory, "cobertura-1"),
+                CoberturaOutput.suffixedFile(new File(directory, "cobertura"), "1"));
+        assertEquals(new File(directory, "cobertura-1.gz"),
+                CoberturaOutput.suffixedFile(new File(directory, "cobertura.gz"), "1"));
+        assertEquals(new File(directory, "cobertura-1.xml.gz"),
+                CoberturaOutput.suffixedFile(new File(directory, "cobertura.xml.gz"), "1"));
+        assertEquals(new File(directory, ".cobertura-1"),
+                CoberturaOutput.suffixedFile(new File(directory, ".cobertura"), "1"));
+    }
+
+    private List<File> convert(File reportFile, long maxOutputBytes) throws Exception {
+        return convert(reportFile, maxOutputBytes, "cobertura.xml");
+    }
+
+    /**
+     * @return the reports written, the single report when {@code maxOutputBytes} is {@code 0}
+     */
+    private List<File> convert(File reportFile, long maxOutputBytes, String outputName) throws Exception {
+        File outputDirectory = folder.newFolder();
+        File outputFile = new File(outputDirectory, outputName);
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(reportFile));
+        converter.setOutputFile(outputFile);
+        converter.setMaxOutputBytes(maxOutputBytes);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+        if (maxOutputBytes == 0) {
+            return List.of(outputFile);
+        }
+        List<File> shards = new ArrayList<>();
+        for (int shard = 1; CoberturaWriter.Shards.shardFile(outputFile, shard).isFile(); shard++) {
+            shards.add(CoberturaWriter.Shards.shardFile(outputFile, shard));
+        }
+        return shards;
+    }
+
+    private File convert(File reportFile, String writer) throws Exception {
+        File outputFile = new File(folder.getRoot(), "cobertura-" + writer + ".xml");
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(reportFile));
+        converter.setOutputFile(outputFile);
+        converter.setSourceDirectories(List.of("src/main/java"));
+        converter.setWriter(writer);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+        return outputFile;
+    }
+
+    private static Document parse(File report) throws Exception {
+        return DocumentBuilderFactory.newDefaultInstance().newDocumentBuilder().parse(report);
+    }
+
+    /**
+     * @return the element with its attributes, sorted by name, and its children, whitespace left out
+     */
+    private static String describe(Element element) {
+        StringBuilder text = new StringBuilder("<").append(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            text.append(' ').append(attributes.item(i).getNodeName()).append("=\"")
+                    .append(attributes.item(i).getNodeValue()).append('"');
+        }
+        text.append('>');
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element) {
+                text.append(describe((Element) child));
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                text.append(child.getNodeValue().trim());
+            }
+        }
+        return text.append("</").append(element.getTagName()).append('>').toString();
+    }
+
+    private static List<String> packages(File report) throws Exception {
+        Matcher matcher = PACKAGE.matcher(new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8));
+        List<String> packages = new ArrayList<>();
+        while (matcher.find()) {
+            packages.add(matcher.group(1));
+        }
+        return packages;
+    }
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            lines.append(i % 3 == 0 ? '0' : '1');
+        }
+        return lines.toString();
+    }
+}
@@ -0,0 +1,185 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageDeltaTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsNoChangeBetweenAJacocoReportAndItsConversion() throws Exception {
+        File classDirectory = Fixtures.classDirectory(folder.newFolder("classes"));
+        File execFile = Fixtures.execFile(classDirectory, folder.newFile("jacoco.exec"));
+        File jacoco = Fixtures.jacocoReport(execFile, classDirectory, folder.newFile("jacoco.xml"));
+        File cobertura = convert(jacoco);
+
+        for (String parser : new String[] {"stax", "mapped"}) {
+            assertUnchanged(compare(jacoco, cobertura, parser));
+            assertUnchanged(compare(cobertura, jacoco, parser));
+        }
+    }
+
+    @Test
+    public void findsNoChangeBetweenAGeneratedReportAndItsConversion() throws Exception {
+        File jacoco = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/a:1101", "com/example/b:0",
+                "com/example/c:111");
+
+        assertUnchanged(compare(jacoco, convert(jacoco), "stax"));
+    }
+
+    @Test
+    public void findsNoChangeBetweenAReportWithAPackageInSeveralGroupsAndItself() throws Exception {
+        File jacoco = Fixtures.writeGroupedReport(folder.newFile("jacoco.xml"), Fixtures.groups(
+                List.of("com/example/a:1101", "com/example/shared:110:Alpha"),
+                List.of("com/example/shared:0011:Beta", "com/example/b:10")));
+
+        for (String parser : new String[] {"stax", "mapped"}) {
+            assertUnchanged(compare(jacoco, jacoco, parser));
+        }
+        assertUnchanged(compare(jacoco, convert(jacoco), "stax"));
+    }
+
+    @Test
+    public void findsTheClassesGoneFromAPackageInSeveralGroups() throws Exception {
+        File baseline = Fixtures.writeGroupedReport(folder.newFile("baseline.xml"), Fixtures.groups(
+                List.of("com/example/shared:110:Alpha"), List.of("com/example/shared:0011:Beta")));
+        File current = Fixtures.writeGroupedReport(folder.newFile("current.xml"), Fixtures.groups(
+                List.of("com/example/shared:110:Alpha"), List.of()));
+
+        Recorder recorder = compare(baseline, current, "stax");
+
+        assertEquals(1, recorder.totals.changedPackages);
+        assertEquals(0, recorder.totals.newUncoveredLines);
+        CoverageDelta.PackageDelta shared = recorder.packages.get("com/example/shared");
+        assertEquals(1, shared.classes.size());
+        assertEquals("com/example/shared/Beta", shared.classes.get(0).name);
+        assertNull(shared.classes.get(0).current);
+        assertEquals(List.of(0L, 0L), List.of(shared.change.current[0], shared.change.current[1]));
+    }
+
+    @Test
+    public void classifiesChangedLines() throws Exception {
+        File baseline = Fixtures.writeReport(folder.newFile("baseline.xml"), "com/example/a:1100",
+                "com/example/gone:11");
+        File current = Fixtures.writeReport(folder.newFile("current.xml"), "com/example/a:10100",
+                "com/example/b:10");
+
+        Recorder recorder = compare(baseline, current, "stax");
+
+        // a: line 2 lost its coverage, line 3 gained it and the new line 5 is uncovered
+        CoverageDelta.PackageDelta a = recorder.packages.get("com/example/a");
+        CoverageDelta.LineHits lines = a.changedLines.get("com/example/a/Main.java");
+        assertEquals(3, lines.size());
+        assertEquals(0, lines.find(2));
+        assertEquals(1, lines.find(3));
+        assertEquals(0, lines.find(5));
+        assertEquals(-1, lines.find(1));
+        assertEquals(-1, lines.find(4));
+        assertEquals(1, a.classes.size());
+        assertEquals("com/example/a/Main", a.classes.get(0).name);
+        // all lines of a new package are changed
+        CoverageDelta.PackageDelta b = recorder.packages.get("com/example/b");
+        assertNull(b.change.baseline);
+        assertEquals(2, b.changedLines.get("com/example/b/Main.java").size());
+        // a package gone from the current report has no current lines
+        CoverageDelta.PackageDelta gone = recorder.packages.get("com/example/gone");
+        assertNull(gone.change.current);
+        assertTrue(gone.changedLines.isEmpty());
+
+        assertEquals(3, recorder.totals.changedPackages);
+        assertEquals(3, recorder.totals.newUncoveredLines);
+        assertEquals(2, recorder.totals.newCoveredLines);
+        assertEquals(4, recorder.totals.baseline.covered);
+        assertEquals(2, recorder.totals.baseline.missed);
+        assertEquals(3, recorder.totals.current.covered);
+        assertEquals(4, recorder.totals.current.missed);
+    }
+
+    @Test
+    public void writesTheNewUncoveredLines() throws Exception {
+        File baseline = Fixtures.writeReport(folder.newFile("baseline.xml"), "com/example/a:1100");
+        File current = Fixtures.writeReport(folder.newFile("current.xml"), "com/example/a:10100");
+        File outputFile = new File(folder.getRoot(), "delta.json");
+
+        try (CoverageDelta.JsonDelta output = new CoverageDelta.JsonDelta(outputFile, baseline, current)) {
+            CoverageDelta.compare(baseline, current, "stax", output);
+        }
+
+        String json = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("{\"file\": \"com/example/a/Main.java\", \"lines\": [2, 5]}"));
+        assertTrue(json, json.contains("\"newUncoveredLines\": 2, \"newCoveredLines\": 1}"));
+    }
+
+    @Test
+    public void namesTheReportThatCouldNotBeRead() throws Exception {
+        File baseline = Fixtures.writeReport(folder.newFile("baseline.xml"), "com/example/a:1100");
+        File current = folder.newFile("current.xml");
+        Files.write(current.toPath(), "<report name=\"truncated\"><package".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            compare(baseline, current, "stax");
+            fail("truncated report was read");
+        } catch (JacocoToCoberturaException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Reading report `" + current + "` error: `"));
+        }
+    }
+
+    private static void assertUnchanged(Recorder recorder) {
+        assertEquals(List.of(), new ArrayList<>(recorder.packages.keySet()));
+        assertEquals(0, recorder.totals.changedPackages);
+        assertEquals(recorder.totals.baseline.missed, recorder.totals.current.missed);
+        assertEquals(recorder.totals.baseline.covered, recorder.totals.current.covered);
+        assertTrue(recorder.totals.current.covered > 0);
+    }
+
+    private File convert(File jacoco) throws Exception {
+        File outputFile = new File(folder.getRoot(), jacoco.getName().replace(".xml", "-cobertura.xml"));
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(jacoco));
+        converter.setOutputFile(outputFile);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+        return outputFile;
+    }
+
+    private static Recorder compare(File baseline, File current, String parser) throws Exception {
+        Recorder recorder = new Recorder();
+        CoverageDelta.compare(baseline, current, parser, recorder);
+        return recorder;
+    }
+
+    private static class Recorder implements CoverageDelta.Output {
+        final Map<String, CoverageDelta.PackageDelta> packages = new LinkedHashMap<>();
+        CoverageDelta.Totals totals;
+
+        @Override
+        public void packageDelta(CoverageDelta.PackageDelta delta) {
+            packages.put(delta.change.name, delta);
+        }
+
+        @Override
+        public void finish(CoverageDelta.Totals totals) {
+            this.totals = totals;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageFilterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleStarMatchesWithinASegment() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/*/Foo"), List.of());
+
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example/sub", "com/example/sub/Foo", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example", "com/example/Bar", "Bar.java"));
+    }
+
+    @Test
+    public void doubleStarMatchesAcrossSegments() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/**"), List.of());
+
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertTrue(filter.acceptClass("com/example/sub", "com/example/sub/Foo", "Foo.java"));
+        assertTrue(filter.acceptSourceFile("com/example/sub", "Foo.java"));
+        assertFalse(filter.acceptClass("com/other", "com/other/Foo", "Foo.java"));
+    }
+
+    @Test
+    public void leadingDoubleStarAlsoMatchesNoDirectory() {
+        CoverageFilter filter = new CoverageFilter(List.of("**/Foo"), List.of());
+
+        assertTrue(filter.acceptClass("", "Foo", "Foo.java"));
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example", "com/example/BigFoo", "BigFoo.java"));
+    }
+
+    @Test
+    public void questionMarkMatchesOneCharacterOfASegment() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/Fo?"), List.of());
+
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example", "com/example/Fooo", "Fooo.java"));
+    }
+
+    @Test
+    public void otherCharactersMatchLiterally() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/Foo$1"), List.of("com/example/Foo.java"));
+
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo$1", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example", "com/example/Foo1", "Foo.java"));
+        assertFalse(filter.acceptSourceFile("com/example", "Foo.java"));
+        assertTrue(new CoverageFilter(List.of(), List.of("com/example/Foo.java"))
+                .acceptSourceFile("com/example", "FooXjava"));
+    }
+
+    @Test
+    public void excludesWinOverIncludes() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/**"), List.of("**/generated/**"));
+
+        assertTrue(filter.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertFalse(filter.acceptClass("com/example/generated", "com/example/generated/Foo", "Foo.java"));
+        assertFalse(filter.acceptPackage("com/example/generated"));
+    }
+
+    @Test
+    public void skipsPackagesNoIncludeCanMatchInto() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/**/Foo"), List.of());
+
+        assertTrue(filter.acceptPackage("com"));
+        assertTrue(filter.acceptPackage("com/example"));
+        assertTrue(filter.acceptPackage("com/example/sub"));
+        assertFalse(filter.acceptPackage("com/other"));
+        assertFalse(filter.acceptPackage("org"));
+    }
+
+    @Test
+    public void acceptsTheSourceFilesOfIncludedClasses() {
+        CoverageFilter filter = new CoverageFilter(List.of("com/example/Foo", "**/*Service"),
+                List.of("**/Generated.java"));
+
+        assertFalse(filter.acceptSourceFile("com/example", "Foo.java"));
+        assertTrue(filter.acceptSourceFile("com/example", "Foo.java", Set.of("Foo.java")));
+        assertFalse(filter.acceptSourceFile("com/example", "Bar.java", Set.of("Foo.java")));
+        assertFalse(filter.acceptSourceFile("com/example", "Generated.java", Set.of("Generated.java")));
+    }
+
+    @Test
+    public void acceptsEverythingWithoutPatterns() {
+        assertTrue(CoverageFilter.NONE.isEmpty());
+        assertTrue(CoverageFilter.NONE.acceptPackage("com/example"));
+        assertTrue(CoverageFilter.NONE.acceptClass("com/example", "com/example/Foo", "Foo.java"));
+        assertTrue(CoverageFilter.NONE.acceptSourceFile("com/example", "Foo.java"));
+    }
+
+    @Test
+    public void keepsTheLinesOfAnIncludedClass() throws Exception {
+        File reportFile = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/a:1101",
+                "com/example/b:11");
+
+        for (String parser : new String[] {"stax", "mapped", "persister"}) {
+            File outputFile = new File(folder.getRoot(), "cobertura-" + parser + ".xml");
+            JacocoToCobertura converter = new JacocoToCobertura();
+            converter.setInputFiles(List.of(reportFile));
+            converter.setIncludes(List.of("com/example/a/Main"));
+            converter.setParser(parser);
+            converter.setOutputFile(outputFile);
+            converter.setLog(Fixtures.QUIET);
+            converter.convert();
+
+            String cobertura = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+            assertTrue(parser, cobertura.contains("<class name=\"com/example/a/Main\""));
+            assertFalse(parser, cobertura.contains("com/example/b"));
+            assertTrue(cobertura, cobertura.contains("<line number=\"4\" hits=\"1\""));
+        }
+    }
+
+    @Test
+    public void convertsOnlyTheAcceptedPackagesWithTheirOwnRates() throws Exception {
+        File reportFile = Fixtures.writeReport(folder.newFile("jacoco.xml"), "com/example/a:1111",
+                "com/example/generated:0000", "org/example:00");
+        File outputFile = new File(folder.getRoot(), "cobertura.xml");
+
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(reportFile));
+        converter.setIncludes(List.of("com/**"));
+        converter.setExcludes(List.of("**/generated/**"));
+        converter.setOutputFile(outputFile);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+
+        String cobertura = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(cobertura.contains("<package name=\"com/example/a\""));
+        assertFalse(cobertura.contains("com/example/generated"));
+        assertFalse(cobertura.contains("org/example"));
+        assertTrue(cobertura, cobertura.contains("<coverage timestamp=\"1700000000\" line-rate=\"1.0\""));
+    }
+}
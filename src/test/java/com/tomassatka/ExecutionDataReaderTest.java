@@ -0,0 +1,45 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExecutionDataReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void convertsExecutionDataLikeItsXmlReport() throws Exception {
+        File classDirectory = Fixtures.classDirectory(folder.newFolder("classes"));
+        File execFile = Fixtures.execFile(classDirectory, folder.newFile("jacoco.exec"));
+        File reportFile = Fixtures.jacocoReport(execFile, classDirectory, folder.newFile("jacoco.xml"));
+
+        JacocoToCobertura fromReport = new JacocoToCobertura();
+        fromReport.setInputFiles(List.of(reportFile));
+        fromReport.setOutputFile(new File(folder.getRoot(), "from-report.xml"));
+        fromReport.setLog(Fixtures.QUIET);
+        fromReport.convert();
+
+        JacocoToCobertura fromExecutionData = new JacocoToCobertura();
+        fromExecutionData.setExecFiles(List.of(execFile));
+        fromExecutionData.setClassDirectories(List.of(classDirectory));
+        fromExecutionData.setOutputFile(new File(folder.getRoot(), "from-exec.xml"));
+        fromExecutionData.setLog(Fixtures.QUIET);
+        fromExecutionData.convert();
+
+        assertEquals(read(new File(folder.getRoot(), "from-report.xml")),
+                read(new File(folder.getRoot(), "from-exec.xml")));
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
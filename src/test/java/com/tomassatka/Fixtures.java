@@ -0,0 +1,263 @@
+package com.tomassatka;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.xml.XMLFormatter;
+
+import com.tomassatka.fixture.Shapes;
+
+/**
+ * JaCoCo execution data and XML reports of the classes in {@code com.tomassatka.fixture}, recorded by running
+ * {@link Shapes#run()} on instrumented copies of them, and generated JaCoCo XML reports.
+ */
+class Fixtures {
+
+    private static final String PACKAGE = "com/tomassatka/fixture";
+
+    /**
+     * Log of conversions which only prints errors.
+     */
+    static final JacocoToCobertura.Log QUIET = new JacocoToCobertura.Log() {
+        @Override
+        public void info(String message) {
+        }
+
+        @Override
+        public void warn(String message) {
+        }
+
+        @Override
+        public void error(String message) {
+            System.err.println("error: " + message);
+        }
+    };
+
+    /**
+     * Copies the compiled fixture classes to {@code dir}, laid out by package like a {@code target/classes}.
+     */
+    static File classDirectory(File dir) throws IOException {
+        Path source;
+        try {
+            source = Path.of(Shapes.class.getResource("Shapes.class").toURI()).getParent();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        Path target = dir.toPath().resolve(PACKAGE);
+        Files.createDirectories(target);
+        try (Stream<Path> classFiles = Files.list(source)) {
+            for (Path classFile : (Iterable<Path>) classFiles::iterator) {
+                Files.copy(classFile, target.resolve(classFile.getFileName()));
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Runs the fixture classes of {@code classDirectory} instrumented and writes their execution data.
+     */
+    static File execFile(File classDirectory, File execFile) throws Exception {
+        IRuntime runtime = new LoggerRuntime();
+        RuntimeData data = new RuntimeData();
+        runtime.startup(data);
+        try {
+            Instrumenter instrumenter = new Instrumenter(runtime);
+            Map<String, byte[]> classes = new HashMap<>();
+            try (Stream<Path> classFiles = Files.list(classDirectory.toPath().resolve(PACKAGE))) {
+                for (Path classFile : (Iterable<Path>) classFiles::iterator) {
+                    String name = PACKAGE.replace('/', '.') + "." + classFile.getFileName().toString()
+                            .replace(".class", "");
+                    classes.put(name, instrumenter.instrument(Files.readAllBytes(classFile), name));
+                }
+            }
+            ClassLoader loader = new ClassLoader(Fixtures.class.getClassLoader()) {
+                @Override
+                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                    byte[] bytes = classes.get(name);
+                    if (bytes == null) {
+                        return super.loadClass(name, resolve);
+                    }
+                    synchronized (getClassLoadingLock(name)) {
+                        Class<?> loaded = findLoadedClass(name);
+                        return loaded != null ? loaded : defineClass(name, bytes, 0, bytes.length);
+                    }
+                }
+            };
+            loader.loadClass(Shapes.class.getName()).getMethod("run").invoke(null);
+
+            ExecutionDataStore executionData = new ExecutionDataStore();
+            SessionInfoStore sessionInfos = new SessionInfoStore();
+            data.collect(executionData, sessionInfos, false);
+            try (OutputStream out = new FileOutputStream(execFile)) {
+                ExecutionDataWriter writer = new ExecutionDataWriter(out);
+                sessionInfos.accept(writer);
+                executionData.accept(writer);
+            }
+        } finally {
+            runtime.shutdown();
+        }
+        return execFile;
+    }
+
+    /**
+     * Writes the JaCoCo XML report of {@code execFile}, as {@code jacoco:report} does.
+     */
+    static File jacocoReport(File execFile, File classDirectory, File reportFile) throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        loader.load(execFile);
+        CoverageBuilder builder = new CoverageBuilder();
+        new Analyzer(loader.getExecutionDataStore(), builder).analyzeAll(classDirectory);
+        try (OutputStream out = new FileOutputStream(reportFile)) {
+            IReportVisitor visitor = new XMLFormatter().createVisitor(out);
+            visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
+                    loader.getExecutionDataStore().getContents());
+            visitor.visitBundle(builder.getBundle("JaCoCo"), null);
+            visitor.visitEnd();
+        }
+        return reportFile;
+    }
+
+    /**
+     * Writes a JaCoCo XML report with one class {@code Main} in {@code Main.java} per package. A package is given as
+     * {@code name:lines}, e.g. {@code com/example/a:1101}, one digit per line from line 1 on, {@code 1} for a
+     * covered line and {@code 0} for a missed one. {@code name:lines:Class} names the class and its source file.
+     */
+    static File writeReport(File reportFile, String... packages) throws IOException {
+        return writeGroupedReport(reportFile, Map.of("", List.of(packages)));
+    }
+
+    /**
+     * Writes a JaCoCo XML report of groups, as {@code report-aggregate} does, packages given as for
+     * {@link #writeReport}. The packages of the group named {@code ""} are written at the top level.
+     */
+    static File writeGroupedReport(File reportFile, Map<String, List<String>> groups) throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<report name=\"fixture\">\n")
+                .append("<sessioninfo id=\"fixture\" start=\"1700000000000\" dump=\"1700000001000\"/>\n");
+        int[] total = new int[2];
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            if (!group.getKey().isEmpty()) {
+                xml.append("<group name=\"").append(group.getKey()).append("\">\n");
+            }
+            int[] groupTotal = new int[2];
+            for (String spec : group.getValue()) {
+                appendPackage(xml, spec, groupTotal);
+            }
+            if (!group.getKey().isEmpty()) {
+                xml.append(counter("INSTRUCTION", 2 * groupTotal[0], 2 * groupTotal[1]))
+                        .append(counter("LINE", groupTotal[0], groupTotal[1])).append("</group>\n");
+            }
+            total[0] += groupTotal[0];
+            total[1] += groupTotal[1];
+        }
+        xml.append(counter("INSTRUCTION", 2 * total[0], 2 * total[1]))
+                .append(counter("LINE", total[0], total[1])).append("</report>\n");
+        Files.write(reportFile.toPath(), xml.toString().getBytes(StandardCharsets.UTF_8));
+        return reportFile;
+    }
+
+    /**
+     * @return the packages of the groups {@code module-a} and {@code module-b}, for {@link #writeGroupedReport}
+     */
+    static Map<String, List<String>> groups(List<String> moduleA, List<String> moduleB) {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        groups.put("module-a", moduleA);
+        groups.put("module-b", moduleB);
+        return groups;
+    }
+
+    private static void appendPackage(StringBuilder xml, String spec, int[] total) {
+        String[] parts = spec.split(":", -1);
+        String name = parts[0];
+        String lines = parts[1];
+        String className = parts.length > 2 ? parts[2] : "Main";
+        int covered = (int) lines.chars().filter(c -> c == '1').count();
+        int missed = lines.length() - covered;
+        String counters = counter("INSTRUCTION", 2 * missed, 2 * covered) + counter("LINE", missed, covered)
+                + counter("METHOD", covered > 0 ? 0 : 1, covered > 0 ? 1 : 0)
+                + counter("CLASS", covered > 0 ? 0 : 1, covered > 0 ? 1 : 0);
+        xml.append("<package name=\"").append(name).append("\">\n")
+                .append("<class name=\"").append(name).append('/').append(className)
+                .append("\" sourcefilename=\"").append(className).append(".java\">\n")
+                .append("<method name=\"run\" desc=\"()V\" line=\"1\">").append(counters).append("</method>\n")
+                .append(counters).append("</class>\n")
+                .append("<sourcefile name=\"").append(className).append(".java\">\n");
+        for (int i = 0; i < lines.length(); i++) {
+            boolean hit = lines.charAt(i) == '1';
+            xml.append("<line nr=\"").append(i + 1).append("\" mi=\"").append(hit ? 0 : 2)
+                    .append("\" ci=\"").append(hit ? 2 : 0).append("\" mb=\"0\" cb=\"0\"/>\n");
+        }
+        xml.append(counters).append("</sourcefile>\n").append(counters).append("</package>\n");
+        total[0] += missed;
+        total[1] += covered;
+    }
+
+    private static String counter(String type, int missed, int covered) {
+        return "<counter type=\"" + type + "\" missed=\"" + missed + "\" covered=\"" + covered + "\"/>";
+    }
+
+    /**
+     * @return everything a package holds as text, for comparing packages
+     */
+    static String describe(Jacoco.PackageElement packageElement) {
+        StringBuilder text = new StringBuilder("package ").append(packageElement.getName())
+                .append(describe(packageElement.getCounterTable())).append('\n');
+        for (Jacoco.ClassElement classElement : packageElement.getClasses()) {
+            text.append("  class ").append(classElement.getName()).append(' ')
+                    .append(classElement.getSourcefilename()).append(describe(classElement.getCounterTable()))
+                    .append('\n');
+            for (Jacoco.MethodElement methodElement : classElement.getMethods()) {
+                text.append("    method ").append(methodElement.getName()).append(methodElement.getDesc())
+                        .append(':').append(methodElement.getLine())
+                        .append(describe(methodElement.getCounterTable())).append('\n');
+            }
+        }
+        for (Jacoco.SourceFile sourceFile : packageElement.getSourceFiles()) {
+            text.append("  sourcefile ").append(sourceFile.getName()).append(describe(sourceFile.getCounterTable()))
+                    .append('\n');
+            Jacoco.LineTable lines = sourceFile.getLineTable();
+            for (int i = 0; i < lines.size(); i++) {
+                text.append("    line ").append(lines.getNr(i)).append(' ').append(lines.getMi(i)).append(' ')
+                        .append(lines.getCi(i)).append(' ').append(lines.getMb(i)).append(' ')
+                        .append(lines.getCb(i)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the counters present as text, for comparing counters
+     */
+    static String describe(Jacoco.CounterTable counters) {
+        StringBuilder text = new StringBuilder();
+        for (Jacoco.CounterType type : Jacoco.CounterType.values()) {
+            if (counters.has(type)) {
+                text.append(' ').append(type).append('=').append(counters.getMissed(type)).append('/')
+                        .append(counters.getCovered(type));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,180 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JacocoScannerTest {
+
+    private static final String HANDWRITTEN = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<!DOCTYPE report PUBLIC \"-//JACOCO//DTD Report 1.1//EN\" \"report.dtd\">\n"
+            + "<!-- written by hand, <package> in a comment is no package -->\n"
+            + "<report name=\"R &amp; D &lt;&#65;&#x42;&gt;\">"
+            + "<sessioninfo id=\"host-&quot;1&quot;\" start=\"1700000000000\" dump=\"1700000001000\"/>"
+            + "<sessioninfo id='single &apos;quoted&apos;' start=\"1700000002000\" dump=\"1700000003000\"></sessioninfo>"
+            + "<package name=\"top\">\n"
+            + "  <class name=\"top/Main\" sourcefilename=\"Main.java\">\n"
+            + "    <method name=\"&lt;init&gt;\" desc=\"()V\" line=\"3\">"
+            + "<counter type=\"LINE\" missed=\"0\" covered=\"1\"/></method>\n"
+            + "    <method name=\"run\" desc=\"(Ljava/lang/String;)V\" line=\"5\"></method>\n"
+            + "    <!-- <method name=\"commented\" desc=\"()V\" line=\"9\"/> -->\n"
+            + "    <counter type=\"LINE\" missed=\"2\" covered=\"1\"></counter>\n"
+            + "    <counter type=\"BRANCH\"\n        missed=\"1\"\tcovered=\"1\" />\n"
+            + "  </class>\n"
+            + "  <class name=\"top/Skipped\" sourcefilename=\"Skipped.java\"><method name=\"x\" desc=\"()V\" line=\"1\">"
+            + "<counter type=\"LINE\" missed=\"1\" covered=\"0\"/></method></class>\n"
+            + "  <class name=\"top/Empty\"/>\n"
+            + "  <sourcefile name=\"Main.java\">\n"
+            + "    <line nr=\"3\" mi=\"0\" ci=\"3\" mb=\"0\" cb=\"0\"/>\n"
+            + "    <line nr=\"5\" mi=\"2\" ci=\"0\" mb=\"1\" cb=\"1\"></line>\n"
+            + "    <line nr=\"6\" mi=\"4\" ci=\"0\" mb=\"0\" cb=\"0\" />\n"
+            + "    <counter type=\"LINE\" missed=\"2\" covered=\"1\"/>\n"
+            + "  </sourcefile>\n"
+            + "  <sourcefile name=\"Sk\u00eepped.java\"><line nr=\"1\" mi=\"1\" ci=\"0\" mb=\"0\" cb=\"0\"/></sourcefile>\n"
+            + "  <counter type=\"UNKNOWN\" missed=\"1\" covered=\"1\"/>\n"
+            + "  <counter type=\"LINE\" missed=\"2\" covered=\"1\"/>\n"
+            + "</package>\n"
+            + "<group name=\"module-a\">"
+            + "<package name=\"a\"><class name=\"a/\u00dcber\" sourcefilename=\"\u00dcber.java\">"
+            + "<method name=\"lambda$run$0\" desc=\"(I)I\" line=\"1\"/></class>"
+            + "<sourcefile name=\"\u00dcber.java\"><line nr=\"1\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/></sourcefile>"
+            + "<counter type=\"LINE\" missed=\"0\" covered=\"1\"/></package>"
+            + "<group name=\"nested\"><package name=\"a/nested\"/></group>"
+            + "<package name=\"skip\"><class name=\"skip/Main\"/></package>"
+            + "<counter type=\"LINE\" missed=\"0\" covered=\"1\"/>"
+            + "</group>\n"
+            + "<group name=\"module-b\"><package name=\"a\"><class name=\"a/B\" sourcefilename=\"B.java\"/></package>"
+            + "</group>\n"
+            + "<counter type=\"LINE\" missed=\"2\" covered=\"3\"/>\n"
+            + "</report>\n"
+            + "<!-- trailing comment -->\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsAHandwrittenReportLikeTheStaxReader() throws Exception {
+        File reportFile = folder.newFile("jacoco.xml");
+        Files.write(reportFile.toPath(), HANDWRITTEN.getBytes(StandardCharsets.UTF_8));
+
+        String scanned = scan(reportFile);
+
+        assertEquals(read(reportFile), scanned);
+        // what the test relies on was read at all
+        assertTrue(scanned, scanned.contains("report R & D <AB>"));
+        assertTrue(scanned, scanned.contains("session host-\"1\" 1700000000000 1700000001000"));
+        assertTrue(scanned, scanned.contains("session single 'quoted' 1700000002000 1700000003000"));
+        assertTrue(scanned, scanned.contains("method <init>()V:3 LINE=0/1"));
+        assertTrue(scanned, scanned.contains("class top/Main Main.java BRANCH=1/1 LINE=2/1"));
+        assertTrue(scanned, scanned.contains("line 5 2 0 1 1"));
+        assertTrue(scanned, scanned.contains("group module-a package a LINE=0/1\n"));
+        assertTrue(scanned, scanned.contains("group nested package a/nested"));
+        assertTrue(scanned, scanned.contains("group module-b package a\n"));
+        assertTrue(scanned, scanned.contains("accept class a/\u00dcber"));
+        assertTrue(scanned, !scanned.contains("commented"));
+        assertTrue(scanned, !scanned.contains("  class top/Skipped"));
+        assertTrue(scanned, !scanned.contains("group module-a package skip"));
+        assertTrue(scanned, scanned.endsWith("end LINE=2/3\n"));
+    }
+
+    @Test
+    public void readsAJacocoReportLikeTheStaxReader() throws Exception {
+        File classDirectory = Fixtures.classDirectory(folder.newFolder("classes"));
+        File execFile = Fixtures.execFile(classDirectory, folder.newFile("jacoco.exec"));
+        File reportFile = Fixtures.jacocoReport(execFile, classDirectory, folder.newFile("jacoco.xml"));
+
+        String scanned = scan(reportFile);
+
+        assertEquals(read(reportFile), scanned);
+        assertTrue(scanned, scanned.contains("class com/tomassatka/fixture/Shapes$Circle"));
+    }
+
+    @Test
+    public void readsAGroupedReportLikeTheStaxReader() throws Exception {
+        File reportFile = Fixtures.writeGroupedReport(folder.newFile("jacoco.xml"), Fixtures.groups(
+                List.of("com/example/a:1101", "com/example/shared:110:Alpha"),
+                List.of("com/example/shared:0011:Beta", "skip:1")));
+
+        assertEquals(read(reportFile), scan(reportFile));
+    }
+
+    @Test
+    public void readsGzipCompressedReportsThroughStax() throws Exception {
+        File compressed = folder.newFile("jacoco.xml.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+            out.write(HANDWRITTEN.getBytes(StandardCharsets.UTF_8));
+        }
+        File plain = folder.newFile("jacoco.xml");
+        Files.write(plain.toPath(), HANDWRITTEN.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(read(plain), scan(compressed));
+    }
+
+    private static String scan(File reportFile) throws Exception {
+        Recorder recorder = new Recorder();
+        JacocoScanner.read(reportFile, recorder);
+        return recorder.events.toString();
+    }
+
+    private static String read(File reportFile) throws Exception {
+        Recorder recorder = new Recorder();
+        JacocoReader.read(reportFile, recorder);
+        return recorder.events.toString();
+    }
+
+    /**
+     * Records what a reader hands over, skipping the package {@code skip} and the classes and source files named
+     * {@code Skipped}.
+     */
+    private static class Recorder implements JacocoReader.Handler {
+        final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void startReport(Jacoco.Report report) {
+            events.append("report ").append(report.getName()).append('\n');
+            for (Jacoco.SessionInfo sessionInfo : report.getSessionInfos()) {
+                events.append("session ").append(sessionInfo.getId()).append(' ').append(sessionInfo.getStart())
+                        .append(' ').append(sessionInfo.getDump()).append('\n');
+            }
+        }
+
+        @Override
+        public boolean acceptPackage(String name) {
+            events.append("accept package ").append(name).append('\n');
+            return !"skip".equals(name);
+        }
+
+        @Override
+        public boolean acceptClass(String packageName, String name, String sourcefilename) {
+            events.append("accept class ").append(name).append(' ').append(sourcefilename).append('\n');
+            return !name.endsWith("/Skipped");
+        }
+
+        @Override
+        public boolean acceptSourceFile(String packageName, String name) {
+            events.append("accept sourcefile ").append(name).append('\n');
+            return !name.startsWith("Sk");
+        }
+
+        @Override
+        public void packageElement(Jacoco.Group group, Jacoco.PackageElement packageElement) {
+            events.append("group ").append(group != null ? group.getName() : null).append(' ')
+                    .append(Fixtures.describe(packageElement));
+        }
+
+        @Override
+        public void endReport(Jacoco.Report report) {
+            events.append("end").append(Fixtures.describe(report.getCounterTable())).append('\n');
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JacocoToCoberturaTaskTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheSameReportWithAnyNumberOfThreads() throws Exception {
+        File reportFile = report();
+
+        for (String writer : new String[] {"stream", "persister"}) {
+            Map<String, byte[]> single = convert(reportFile, writer, 1, false);
+            Map<String, byte[]> concurrent = convert(reportFile, writer, 4, false);
+
+            assertEquals(1, single.size());
+            assertSame(single, concurrent);
+        }
+    }
+
+    @Test
+    public void writesTheSameReportsPerPackageWithAnyNumberOfThreads() throws Exception {
+        File reportFile = report();
+
+        Map<String, byte[]> single = convert(reportFile, "stream", 1, true);
+        Map<String, byte[]> concurrent = convert(reportFile, "stream", 4, true);
+
+        assertEquals(12, single.size());
+        assertSame(single, concurrent);
+    }
+
+    private File report() throws Exception {
+        String[] packages = new String[12];
+        for (int i = 0; i < packages.length; i++) {
+            StringBuilder lines = new StringBuilder();
+            for (int line = 0; line < 20 + 7 * i; line++) {
+                lines.append((line + i) % 3 == 0 ? '0' : '1');
+            }
+            packages[i] = "com/example/p" + i + ":" + lines;
+        }
+        return Fixtures.writeReport(folder.newFile(), packages);
+    }
+
+    /**
+     * @return the reports written, by their path relative to the output directory
+     */
+    private Map<String, byte[]> convert(File reportFile, String writer, int threads, boolean splitByPackage)
+            throws Exception {
+        File outputDirectory = folder.newFolder();
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(reportFile));
+        converter.setOutputFile(new File(outputDirectory, "cobertura.xml"));
+        converter.setWriter(writer);
+        converter.setThreads(threads);
+        converter.setSplitByPackage(splitByPackage);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+
+        Map<String, byte[]> reports = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(outputDirectory.toPath())) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                reports.put(outputDirectory.toPath().relativize(file).toString(), Files.readAllBytes(file));
+            }
+        }
+        return reports;
+    }
+
+    private static void assertSame(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String name : expected.keySet()) {
+            assertTrue(name + " is empty", expected.get(name).length > 0);
+            assertArrayEquals(name, expected.get(name), actual.get(name));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackageSpillTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        Jacoco.PackageElement first = packageElement("com/example", 3);
+        Jacoco.PackageElement second = packageElement("com/example/sub", 1000);
+        Jacoco.PackageElement empty = new Jacoco.PackageElement();
+
+        try (PackageSpill spill = new PackageSpill(folder.getRoot())) {
+            long firstPosition = spill.write(first);
+            long secondPosition = spill.write(second);
+            long emptyPosition = spill.write(empty);
+
+            assertTrue(spill.size() > secondPosition);
+            assertEquals(Fixtures.describe(second), Fixtures.describe(spill.read(secondPosition)));
+            assertEquals(Fixtures.describe(first), Fixtures.describe(spill.read(firstPosition)));
+            assertEquals(Fixtures.describe(empty), Fixtures.describe(spill.read(emptyPosition)));
+            // positions stay valid when read several times
+            assertEquals(Fixtures.describe(first), Fixtures.describe(spill.read(firstPosition)));
+        }
+    }
+
+    @Test
+    public void keepsMissingValues() throws Exception {
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+        classElement.setName("Main");
+        Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+        methodElement.setName("<clinit>");
+        classElement.getMethods().add(methodElement);
+        packageElement.getClasses().add(classElement);
+
+        try (PackageSpill spill = new PackageSpill(folder.getRoot())) {
+            Jacoco.PackageElement read = spill.read(spill.write(packageElement));
+
+            assertEquals(null, read.getName());
+            assertEquals(null, read.getClasses().get(0).getSourcefilename());
+            assertEquals(null, read.getClasses().get(0).getMethods().get(0).getDesc());
+            assertEquals(null, read.getClasses().get(0).getMethods().get(0).getLine());
+            assertEquals(Fixtures.describe(packageElement), Fixtures.describe(read));
+        }
+    }
+
+    @Test
+    public void deletesItsFileWhenClosed() throws Exception {
+        try (PackageSpill spill = new PackageSpill(folder.getRoot())) {
+            spill.write(packageElement("com/example", 3));
+        }
+        assertArrayEquals(new String[0], folder.getRoot().list());
+    }
+
+    private static Jacoco.PackageElement packageElement(String name, int lines) {
+        Jacoco.PackageElement packageElement = new Jacoco.PackageElement();
+        packageElement.setName(name);
+        packageElement.getCounterTable().add(Jacoco.CounterType.LINE, lines / 2, lines - lines / 2);
+        packageElement.getCounterTable().add(Jacoco.CounterType.CLASS, 0, 2);
+        for (String className : new String[] {"Main", "Main$Inner"}) {
+            Jacoco.ClassElement classElement = new Jacoco.ClassElement();
+            classElement.setName(name + "/" + className);
+            classElement.setSourcefilename("Main.java");
+            classElement.getCounterTable().add(Jacoco.CounterType.INSTRUCTION, 7, 11);
+            classElement.getCounterTable().add(Jacoco.CounterType.BRANCH, 1, 3);
+            for (int line = 1; line <= 2; line++) {
+                Jacoco.MethodElement methodElement = new Jacoco.MethodElement();
+                methodElement.setName("run" + line);
+                methodElement.setDesc("(I)" + className.charAt(0) + ";");
+                methodElement.setLine(line);
+                methodElement.getCounterTable().add(Jacoco.CounterType.METHOD, 0, 1);
+                classElement.getMethods().add(methodElement);
+            }
+            packageElement.getClasses().add(classElement);
+        }
+        Jacoco.SourceFile sourceFile = new Jacoco.SourceFile();
+        sourceFile.setName("Main\u00e9\u4e2d.java");
+        sourceFile.getCounterTable().add(Jacoco.CounterType.LINE, lines / 2, lines - lines / 2);
+        for (int line = 1; line <= lines; line++) {
+            sourceFile.getLineTable().add(line, line % 2 * 3, line % 3, line % 4 == 0 ? 2 : 0, line % 5 == 0 ? 1 : 0);
+        }
+        packageElement.getSourceFiles().add(sourceFile);
+        return packageElement;
+    }
+}
@@ -0,0 +1,116 @@
+package com.tomassatka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportMergerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mergesTheSameClassByItsHighestCoverage() throws Exception {
+        Map<String, Jacoco.PackageElement> merged = merge(0, List.of(
+                Fixtures.writeReport(folder.newFile(), "com/example/a:1100", "com/example/b:10"),
+                Fixtures.writeReport(folder.newFile(), "com/example/a:01100", "com/example/c:0")));
+
+        assertEquals(List.of("com/example/a", "com/example/b", "com/example/c"), new ArrayList<>(merged.keySet()));
+        Jacoco.PackageElement a = merged.get("com/example/a");
+        Jacoco.LineTable lines = a.getSourceFiles().get(0).getLineTable();
+        assertEquals(5, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(i + 1, lines.getNr(i));
+            // a line is covered when a report covers it, its instructions are those of the larger report
+            assertEquals("line " + (i + 1), i < 3 ? 2 : 0, lines.getCi(i));
+            assertEquals("line " + (i + 1), i < 3 ? 0 : 2, lines.getMi(i));
+        }
+        // line counters are counted from the merged lines, the others take the highest covered count and total
+        Jacoco.ClassElement classElement = a.getClasses().get(0);
+        assertEquals(3, classElement.getCounterTable().getCovered(Jacoco.CounterType.LINE));
+        assertEquals(2, classElement.getCounterTable().getMissed(Jacoco.CounterType.LINE));
+        assertEquals(4, classElement.getCounterTable().getCovered(Jacoco.CounterType.INSTRUCTION));
+        assertEquals(6, classElement.getCounterTable().getMissed(Jacoco.CounterType.INSTRUCTION));
+        assertEquals(1, classElement.getMethods().size());
+        assertEquals(3, classElement.getMethods().get(0).getCounterTable().getCovered(Jacoco.CounterType.LINE));
+        assertEquals(3, a.getSourceFiles().get(0).getCounterTable().getCovered(Jacoco.CounterType.LINE));
+        // the package counters are the sums of its merged classes
+        assertEquals(3, a.getCounterTable().getCovered(Jacoco.CounterType.LINE));
+        assertEquals(2, a.getCounterTable().getMissed(Jacoco.CounterType.LINE));
+    }
+
+    @Test
+    public void ratesAgreeWithTheLinesOfReportsCoveringDisjointHalves() throws Exception {
+        File outputFile = new File(folder.getRoot(), "cobertura.xml");
+        JacocoToCobertura converter = new JacocoToCobertura();
+        converter.setInputFiles(List.of(Fixtures.writeReport(folder.newFile(), "com/example/a:1100"),
+                Fixtures.writeReport(folder.newFile(), "com/example/a:0011")));
+        converter.setOutputFile(outputFile);
+        converter.setLog(Fixtures.QUIET);
+        converter.convert();
+
+        String cobertura = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertFalse(cobertura, cobertura.contains("hits=\"0\""));
+        assertTrue(cobertura, cobertura.contains("<coverage timestamp=\"1700000000\" line-rate=\"1.0\""));
+        assertTrue(cobertura, cobertura.contains("<package name=\"com/example/a\" line-rate=\"1.0\""));
+        assertTrue(cobertura, cobertura.contains(
+                "<class name=\"com/example/a/Main\" filename=\"com/example/a/Main.java\" line-rate=\"1.0\""));
+        assertTrue(cobertura, cobertura.contains("<method name=\"run\" signature=\"()V\" line-rate=\"1.0\""));
+    }
+
+    @Test
+    public void spillsPackagesAboveTheCeilingWithoutChangingTheResult() throws Exception {
+        List<File> reports = List.of(
+                Fixtures.writeReport(folder.newFile(), "com/example/a:1100", "com/example/b:1000",
+                        "com/example/c:0001"),
+                Fixtures.writeReport(folder.newFile(), "com/example/b:0100", "com/example/a:0011"),
+                Fixtures.writeReport(folder.newFile(), "com/example/c:0110", "com/example/d:1",
+                        "com/example/b:0010"));
+        File spillDirectory = folder.newFolder();
+
+        Map<String, Jacoco.PackageElement> inMemory = merge(0, reports);
+        Map<String, Jacoco.PackageElement> withCeiling = new TreeMap<>();
+        ReportMerger.read(reports, (group, packageElement) -> withCeiling.put(packageElement.getName(),
+                packageElement), JacocoReader::read, spillDirectory, 1);
+
+        assertEquals(describe(inMemory), describe(withCeiling));
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void spillsIntoTheSpillDirectory() throws Exception {
+        List<File> reports = List.of(Fixtures.writeReport(folder.newFile(), "com/example/a:1100"),
+                Fixtures.writeReport(folder.newFile(), "com/example/a:0011"));
+
+        // the spill file is unlinked right away, only creating it in a missing directory shows it is used
+        ReportMerger.read(reports, (group, packageElement) -> {
+        }, JacocoReader::read, new File(folder.getRoot(), "missing"), 1);
+    }
+
+    private static Map<String, Jacoco.PackageElement> merge(long maxMemoryBytes, List<File> reports)
+            throws Exception {
+        Map<String, Jacoco.PackageElement> packages = new TreeMap<>();
+        ReportMerger.read(reports, (group, packageElement) -> packages.put(packageElement.getName(), packageElement),
+                JacocoReader::read, null, maxMemoryBytes);
+        return packages;
+    }
+
+    private static String describe(Map<String, Jacoco.PackageElement> packages) {
+        StringBuilder text = new StringBuilder();
+        packages.values().forEach(packageElement -> text.append(Fixtures.describe(packageElement)));
+        return text.toString();
+    }
+}
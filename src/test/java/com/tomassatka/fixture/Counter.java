@@ -0,0 +1,22 @@
+package com.tomassatka.fixture;
+
+/**
+ * Overloaded methods of a second class, partly run by {@link Shapes#run()}.
+ */
+public class Counter {
+    private int count;
+
+    public void add() {
+        count++;
+    }
+
+    public void add(int n) {
+        for (int i = 0; i < n; i++) {
+            add();
+        }
+    }
+
+    public int get() {
+        return count;
+    }
+}
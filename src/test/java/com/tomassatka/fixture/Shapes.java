@@ -0,0 +1,70 @@
+package com.tomassatka.fixture;
+
+/**
+ * Classes converted by the tests: nested classes sharing the names of their methods and a partly run method.
+ */
+public class Shapes {
+
+    public static double run() {
+        Counter counter = new Counter();
+        counter.add(2);
+        return new Circle(1).area() + new Square(2).area() + largest(3, 4) + counter.get();
+    }
+
+    static double largest(double a, double b) {
+        if (a > b) {
+            return a;
+        }
+        return b;
+    }
+
+    static class Circle {
+        private final double radius;
+
+        Circle(double radius) {
+            this.radius = radius;
+        }
+
+        double area() {
+            return Math.PI * radius * radius;
+        }
+    }
+
+    static class Square {
+        private final double side;
+
+        Square(double side) {
+            this.side = side;
+        }
+
+        double area() {
+            return side * side;
+        }
+    }
+
+    static class Triangle {
+        private final double base;
+        private final double height;
+
+        Triangle(double base, double height) {
+            this.base = base;
+            this.height = height;
+        }
+
+        double area() {
+            return base * height / 2;
+        }
+    }
+
+    static class Hexagon {
+        private final double side;
+
+        Hexagon(double side) {
+            this.side = side;
+        }
+
+        double area() {
+            return 3 * Math.sqrt(3) / 2 * side * side;
+        }
+    }
+}